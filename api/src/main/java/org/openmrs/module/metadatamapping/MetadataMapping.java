@@ -40,4 +40,33 @@ public class MetadataMapping {
 	 */
 	public static final String GP_ADD_LOCAL_MAPPINGS = MODULE_ID + ".addLocalMappings";
 	
+	/**
+	 * Global property name, holds the id of the last concept processed by the local mapping job
+	 * @since 2.1.0
+	 */
+	public static final String GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID = MODULE_ID + ".localMappingJob.lastConceptId";
+	
+	/**
+	 * Global property name, specifies whether lookups of metadata items and term mappings by source name and term code
+	 * should use the Hibernate query cache
+	 * <p>
+	 * The entities of the module are cached in the second-level cache regardless of this property, since the cache
+	 * usage of a mapping is fixed when the session factory is built.
+	 * @since 2.1.0
+	 */
+	public static final String GP_QUERY_CACHE_ENABLED = MODULE_ID + ".queryCacheEnabled";
+	
+	/**
+	 * Global property name, holds the number of term mappings or set members written to the database at once by the
+	 * batch save methods
+	 * @since 2.1.0
+	 */
+	public static final String GP_BATCH_SIZE = MODULE_ID + ".batchSize";
+	
+	/**
+	 * Default value of {@link #GP_BATCH_SIZE}
+	 * @since 2.1.0
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	
 }
@@ -18,17 +18,48 @@ import org.openmrs.Role;
 import org.openmrs.api.UserService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.openmrs.module.metadatamapping.api.impl.LocalMappingJob;
+import org.openmrs.module.metadatamapping.api.impl.MetadataMappingServiceImpl;
 
 import java.util.List;
 
 /**
  * Performs startup and shutdown operations.
  */
-public class MetadataMappingActivator extends BaseModuleActivator {
+public class MetadataMappingActivator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	@Override
 	public void started() {
 		removeDeprecatedMetadataMappingPrivilege();
+		applyQueryCacheSetting();
+		applyBatchSizeSetting();
+	}
+	
+	@Override
+	public void setDaemonToken(DaemonToken token) {
+		LocalMappingJob.setDaemonToken(token);
+	}
+	
+	/**
+	 * Changes of the setting are applied by the service, which listens to the global property.
+	 */
+	private void applyQueryCacheSetting() {
+		String queryCacheEnabled = Context.getAdministrationService().getGlobalProperty(
+		    MetadataMapping.GP_QUERY_CACHE_ENABLED, "false");
+		Context.getRegisteredComponent("metadatamapping.MetadataMappingDAO", MetadataMappingDAO.class)
+		        .setQueryCacheEnabled(Boolean.parseBoolean(queryCacheEnabled.trim()));
+	}
+	
+	/**
+	 * Changes of the setting are applied by the service, which listens to the global property.
+	 */
+	private void applyBatchSizeSetting() {
+		String batchSize = Context.getAdministrationService().getGlobalProperty(MetadataMapping.GP_BATCH_SIZE);
+		Context.getRegisteredComponent("metadatamapping.MetadataMappingDAO", MetadataMappingDAO.class).setBatchSize(
+		    MetadataMappingServiceImpl.parseBatchSize(batchSize));
 	}
 	
 	/**
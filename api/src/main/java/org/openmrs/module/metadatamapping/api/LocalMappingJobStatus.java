@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api;
+
+/**
+ * Immutable snapshot of the progress of the background job adding local mappings to concepts.
+ * @see MetadataMappingService#getLocalMappingJobStatus()
+ * @since 2.1.0
+ */
+public class LocalMappingJobStatus {
+	
+	/**
+	 * State of the job.
+	 */
+	public enum State {
+		IDLE, RUNNING, PAUSED, COMPLETED, FAILED
+	}
+	
+	private final State state;
+	
+	private final long processedConcepts;
+	
+	private final long totalConcepts;
+	
+	private final Integer lastConceptId;
+	
+	private final double conceptsPerSecond;
+	
+	private final String errorMessage;
+	
+	public LocalMappingJobStatus(State state, long processedConcepts, long totalConcepts, Integer lastConceptId,
+	    double conceptsPerSecond, String errorMessage) {
+		this.state = state;
+		this.processedConcepts = processedConcepts;
+		this.totalConcepts = totalConcepts;
+		this.lastConceptId = lastConceptId;
+		this.conceptsPerSecond = conceptsPerSecond;
+		this.errorMessage = errorMessage;
+	}
+	
+	public State getState() {
+		return state;
+	}
+	
+	/**
+	 * @return number of processed concepts, including the ones processed before the job was resumed
+	 */
+	public long getProcessedConcepts() {
+		return processedConcepts;
+	}
+	
+	/**
+	 * @return number of concepts in the system when the job was started or resumed
+	 */
+	public long getTotalConcepts() {
+		return totalConcepts;
+	}
+	
+	/**
+	 * @return id of the last processed concept, at which the job continues when resumed
+	 */
+	public Integer getLastConceptId() {
+		return lastConceptId;
+	}
+	
+	/**
+	 * @return average number of concepts processed per second since the job was last started or resumed
+	 */
+	public double getConceptsPerSecond() {
+		return conceptsPerSecond;
+	}
+	
+	/**
+	 * @return message of the error, which stopped the job or null
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+}
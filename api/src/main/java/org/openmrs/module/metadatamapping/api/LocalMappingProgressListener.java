@@ -0,0 +1,29 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api;
+
+/**
+ * Receives progress of adding local mappings to concepts in batches.
+ * @see MetadataMappingService#addLocalMappingToAllConcepts(int, boolean, LocalMappingProgressListener)
+ * @since 2.1.0
+ */
+public interface LocalMappingProgressListener {
+	
+	/**
+	 * Called after each batch has been processed and flushed.
+	 * @param processedConcepts number of concepts processed so far
+	 * @param lastConceptId id of the last processed concept
+	 */
+	void batchProcessed(int processedConcepts, Integer lastConceptId);
+}
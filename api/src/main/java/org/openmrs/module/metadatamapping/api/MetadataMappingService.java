@@ -27,10 +27,16 @@ import org.openmrs.module.metadatamapping.MetadataSource;
 import org.openmrs.module.metadatamapping.MetadataTermMapping;
 import org.openmrs.module.metadatamapping.RetiredHandlingMode;
 import org.openmrs.module.metadatamapping.api.exception.InvalidMetadataTypeException;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingFormat;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImportResult;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingRow;
 import org.openmrs.module.metadatamapping.api.wrapper.ConceptAdapter;
 
+import java.io.Reader;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -54,12 +60,13 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * Returns a configured local concept source.
 	 * <p>
 	 * The local concept source is read from the {@link MetadataMapping#GP_LOCAL_SOURCE_UUID} global
-	 * property.
+	 * property. The id of the source is cached until the global property changes.
 	 * 
 	 * @return the local concept source
 	 * @throws APIException if the local concept source is not configured
 	 * @should return local concept source if gp set
 	 * @should fail if gp is not set
+	 * @should return new source after gp changed
 	 */
 	@Authorized()
 	ConceptSource getLocalConceptSource();
@@ -103,7 +110,9 @@ public interface MetadataMappingService extends OpenmrsService {
 	/**
 	 * Adds local mappings to all concepts in the system.
 	 * <p>
-	 * It iterates over all concept and calls {@link #addLocalMappingToConcept(Concept)}.
+	 * It iterates over all concept and calls {@link #addLocalMappingToConcept(Concept)}. Concepts are read in batches
+	 * ordered by id, and the session is flushed and the concepts and reference terms of each batch are evicted after
+	 * the batch. It all happens in a single transaction.
 	 * 
 	 * @throws APIException reserved for future use
 	 * @should delegate for all concepts
@@ -111,6 +120,87 @@ public interface MetadataMappingService extends OpenmrsService {
 	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
 	void addLocalMappingToAllConcepts();
 	
+	/**
+	 * Adds local mappings to all concepts in the system in batches of the given size.
+	 * <p>
+	 * Concepts are read with {@link #addLocalMappingToConcepts(Integer, int)}, which keeps the session small. If
+	 * commitEachBatch is true, each batch is committed in a new transaction, so that the work done so far is kept if a
+	 * later batch fails. Otherwise all batches run in a single transaction.
+	 * 
+	 * @param batchSize number of concepts processed in a batch
+	 * @param commitEachBatch true to commit after each batch
+	 * @param listener notified after each batch, may be null
+	 * @throws APIException if the local source is not configured
+	 * @should run each batch in a new transaction and notify listener
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	void addLocalMappingToAllConcepts(int batchSize, boolean commitEachBatch, LocalMappingProgressListener listener);
+	
+	/**
+	 * Adds local mappings to a batch of concepts with ids greater than the given one.
+	 * <p>
+	 * Local mappings of retired concepts are retired. The session is flushed at the end and the processed concepts
+	 * and their reference terms are evicted. Other objects loaded before the call stay in the session.
+	 * 
+	 * @param afterConceptId id of the last concept processed in the previous batch, null to start from the beginning
+	 * @param maxResults maximum number of concepts to process
+	 * @return id of the last processed concept or null, if there were no concepts left
+	 * @throws APIException if the local source is not configured
+	 * @should add mappings to concepts after given id
+	 * @should return null if no concepts left
+	 * @should skip concepts already mapped to local source
+	 * @should retire local mappings of retired concepts
+	 * @should keep objects loaded by the caller in the session
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	Integer addLocalMappingToConcepts(Integer afterConceptId, int maxResults);
+	
+	/**
+	 * Starts adding local mappings to all concepts in a background job.
+	 * <p>
+	 * Each batch is committed separately and the id of its last concept is saved in the
+	 * {@link MetadataMapping#GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID} global property. The job starts after the
+	 * transaction of the caller commits.
+	 * 
+	 * @return status of the started job
+	 * @throws APIException if the job is already running or the local source is not configured
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	LocalMappingJobStatus startLocalMappingJob();
+	
+	/**
+	 * Resumes the background job adding local mappings after the last concept saved in the
+	 * {@link MetadataMapping#GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID} global property.
+	 * 
+	 * @return status of the resumed job
+	 * @throws APIException if the job is already running or the local source is not configured
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	LocalMappingJobStatus resumeLocalMappingJob();
+	
+	/**
+	 * Requests the background job adding local mappings to stop after the current batch.
+	 * 
+	 * @return status of the job
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	LocalMappingJobStatus pauseLocalMappingJob();
+	
+	/**
+	 * Returns progress of the background job adding local mappings.
+	 * 
+	 * @return status of the job
+	 * @should return idle status if job was not started
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	LocalMappingJobStatus getLocalMappingJobStatus();
+	
 	/**
 	 * Returns sources to which you are subscribed.
 	 * 
@@ -148,13 +238,15 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * Determines if the given concept is local.
 	 * <p>
 	 * A concept is local if it does not contain a source returned by
-	 * {@link #getSubscribedConceptSources()}.
+	 * {@link #getSubscribedConceptSources()}. Ids of the subscribed sources are cached until the global property
+	 * changes.
 	 * 
 	 * @param concept concept to check
 	 * @return true if local
 	 * @throws APIException reserved for future use
 	 * @should return true if local
 	 * @should return false if not local
+	 * @should return true after source is unsubscribed
 	 */
 	@Authorized()
 	boolean isLocalConcept(Concept concept);
@@ -215,6 +307,34 @@ public interface MetadataMappingService extends OpenmrsService {
 	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
 	void markLocalMappingRetiredInConcept(Concept concept);
 	
+	/**
+	 * Retires local mappings of the given concepts, which are looked up with a single query.
+	 * <p>
+	 * Local terms, which a concept is mapped to and which have the id of that concept as the code, are retired by
+	 * the concept service. Changes are written on the next flush.
+	 * 
+	 * @param concepts retire local mappings for these concepts
+	 * @return the number of retired terms
+	 * @throws APIException if the local source is not configured
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	int markLocalMappingsRetiredInConcepts(Collection<Concept> concepts);
+	
+	/**
+	 * Unretires local mappings of the given concepts, which are looked up with a single query.
+	 * <p>
+	 * Local terms, which a concept is mapped to and which have the id of that concept as the code, are unretired by
+	 * the concept service. Changes are written on the next flush.
+	 * 
+	 * @param concepts unretire local mappings for these concepts
+	 * @return the number of unretired terms
+	 * @throws APIException if the local source is not configured
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	int markLocalMappingsUnretiredInConcepts(Collection<Concept> concepts);
+	
 	/**
 	 * Sets the local concept source to the source with the given uuid.
 	 * 
@@ -276,10 +396,13 @@ public interface MetadataMappingService extends OpenmrsService {
 	MetadataSource getMetadataSourceByUuid(String metadataSourceUuid);
 	
 	/**
-	 * Get metadata source with the given name. 
+	 * Get metadata source with the given name. A source renamed in the current session is found by its new name once
+	 * the session has been flushed.
 	 * @param metadataSourceName uuid of the object
 	 * @return object or null, if does not exist
 	 * @since 1.1
+	 * @should return source by new name after it was renamed and flushed
+	 * @should return null if source does not exist
 	 */
 	@Authorized()
 	MetadataSource getMetadataSourceByName(String metadataSourceName);
@@ -341,6 +464,26 @@ public interface MetadataMappingService extends OpenmrsService {
 	<T extends OpenmrsMetadata> MetadataTermMapping mapMetadataItems(List<T> referredObjects, String sourceName,
 	        String mappingCode);
 	
+	/**
+	 * Creates or updates a metadata mapping for a set of objects and reports the changes made to the set.
+	 * <p>
+	 * Members are compared by the uuid of the metadata item. Previously retired members of requested items are
+	 * unretired instead of being added again. All new, unretired and retired members are saved in a single batch.
+	 * 
+	 * @param referredObjects objects to map
+	 * @param sourceName name of source
+	 * @param mappingCode name of mapping
+	 * @return created or updated MetadataTermMapping with uuids of added, retired and unchanged items
+	 * @should report all items as added when creating new MetadataSet
+	 * @should report added, retired and unchanged items of existing MetadataSet
+	 * @should unretire previously retired member instead of adding new one
+	 * @should fail if no source with given sourceName
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	<T extends OpenmrsMetadata> MetadataSetReconciliationResult reconcileMetadataItems(List<T> referredObjects,
+	        String sourceName, String mappingCode);
+	
 	/**
 	 * Save a new metadata term mapping or update an existing one.
 	 * @param metadataTermMapping object to save
@@ -354,14 +497,82 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Batch save for metadata terms mappings.
+	 * <p>
+	 * Collections larger than the batch size set in {@link MetadataMapping#GP_BATCH_SIZE} are written and evicted from
+	 * the session batch by batch, thus the returned mappings are detached.
 	 * @param metadataTermMappings collection of metadata term mappings to save
 	 * @return collections of saved metadata term mappings
+	 * @should save mappings in batches
+	 * @should keep mappings of a single batch in the session
 	 * @since 1.1
 	 * @see #saveMetadataTermMapping(MetadataTermMapping)
 	 */
 	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
 	Collection<MetadataTermMapping> saveMetadataTermMappings(Collection<MetadataTermMapping> metadataTermMappings);
 	
+	/**
+	 * Creates or updates metadata term mappings from a table with the columns source (name), code, metadataClass,
+	 * metadataUuid and the optional column retired. Mappings are retired or unretired, if retired is true or false,
+	 * and keep their state, if it is empty.
+	 * <p>
+	 * The table is read incrementally and imported in batches of the size set in
+	 * {@link MetadataMapping#GP_BATCH_SIZE}. The session is cleared after each batch, so objects loaded before the
+	 * call are detached. Invalid rows, including rows with a metadataUuid, which no object of the metadataClass has,
+	 * are reported in the result and skipped.
+	 * <p>
+	 * All batches are imported in a single transaction. If the table cannot be read, the transaction is rolled back
+	 * and no row is imported.
+	 * 
+	 * @param reader character stream of the table, which is not closed
+	 * @param format format of the table
+	 * @return numbers of created, updated and unchanged mappings and errors of skipped rows
+	 * @throws APIException if the table cannot be read
+	 * @should create and update term mappings from CSV
+	 * @should create term mappings from JSON
+	 * @should report invalid rows and import the others
+	 * @should keep whitespace of quoted values
+	 * @should retire and unretire term mappings
+	 * @should report rows referring to metadata which does not exist
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	MetadataTermMappingImportResult importMetadataTermMappings(Reader reader, MetadataTermMappingFormat format);
+	
+	/**
+	 * Creates or updates metadata term mappings from the given rows in a single transaction.
+	 * <p>
+	 * Rows are imported in batches as by {@link #importMetadataTermMappings(Reader, MetadataTermMappingFormat)},
+	 * and the result of every row is kept in the returned summary.
+	 * 
+	 * @param rows rows to import
+	 * @return numbers of created, updated and unchanged mappings and the result of every row
+	 * @should return the result of every row
+	 * @since 2.1.0
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
+	MetadataTermMappingImportResult importMetadataTermMappings(List<MetadataTermMappingRow> rows);
+	
+	/**
+	 * Writes all metadata term mappings of the source, including retired ones, ordered by id. Mappings referring to a
+	 * set are written with the unretired members of the set. The table can be imported again with
+	 * {@link #importMetadataTermMappings(Reader, MetadataTermMappingFormat)}, which restores the mappings and their
+	 * retired state, but not the members of sets.
+	 * <p>
+	 * Mappings are read with a database cursor and written as they are read, so that memory use does not depend on
+	 * the number of mappings.
+	 * 
+	 * @param metadataSource source of the mappings
+	 * @param writer character stream to write to, which is flushed, but not closed
+	 * @param format format of the table
+	 * @throws APIException if the table cannot be written
+	 * @should write term mappings and set members as CSV
+	 * @should write term mappings and set members as JSON
+	 * @should write tables which import to the same mappings
+	 * @since 2.1.0
+	 */
+	@Authorized()
+	void exportMetadataTermMappings(MetadataSource metadataSource, Writer writer, MetadataTermMappingFormat format);
+	
 	/**
 	 * Get metadata term mapping with the given id.
 	 * @param metadataTermMappingId database id of the object
@@ -403,6 +614,21 @@ public interface MetadataMappingService extends OpenmrsService {
 	@Deprecated
 	List<MetadataTermMapping> getMetadataTermMappings(OpenmrsMetadata referredObject);
 	
+	/**
+	 * Find all the unretired metadata term mappings that refer to any of the given metadata objects.
+	 * <p>
+	 * It runs a single query for up to 500 objects, so that mappings can be shown for a whole page of objects.
+	 * @param referredObjects find term mappings that refer to these objects
+	 * @param <T> type of the metadata objects
+	 * @return term mappings by referred object in the order of the given objects, objects without mappings are mapped
+	 * to an empty list
+	 * @since 2.1.0
+	 * @should return unretired term mappings by referred object
+	 */
+	@Authorized()
+	<T extends OpenmrsMetadata> Map<T, List<MetadataTermMapping>> getMetadataTermMappings(
+	        Collection<T> referredObjects);
+	
 	/**
 	 * Retire the object and set required info via an AOP injected method.
 	 * @param metadataTermMapping object to retire
@@ -432,6 +658,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * @return object or null, if does not exist
 	 * @since 1.2
 	 * @should return a retired term mapping
+	 * @should return null if source does not exist
+	 * @should return updated term mapping with query cache enabled
 	 */
 	@Authorized()
 	MetadataTermMapping getMetadataTermMapping(String metadataSourceName, String metadataTermCode);
@@ -450,6 +678,9 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get metadata item referred to by the given metadata term mapping
+	 * <p>
+	 * The mapping and the item are looked up with the query cache, if {@link MetadataMapping#GP_QUERY_CACHE_ENABLED}
+	 * is true.
 	 * @param type type of the metadata item
 	 * @param metadataSourceName metadata source name
 	 * @param metadataTermCode metadata term code
@@ -464,6 +695,9 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * @should not return unretired metadata item for retired term
 	 * @should fail on type mismatch
 	 * @should return null if term does not exist
+	 * @should return item of updated mapping after it was cached
+	 * @should return null after cached mapping is retired
+	 * @should return cached item of type without integer id
 	 */
 	@Authorized(MetadataMapping.PRIVILEGE_VIEW_METADATA)
 	<T extends OpenmrsMetadata> T getMetadataItem(Class<T> type, String metadataSourceName, String metadataTermCode);
@@ -473,14 +707,50 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * @param type type of the metadata item
 	 * @param metadataSourceName metadata source name
 	 * @param <T> type of the metadata item
-	 * @return list of matching metadata items
+	 * @return list of matching metadata items in the order of the mapping ids, items of retired mappings and mappings
+	 * referring to items which do not exist are not included
 	 * @since 1.1
 	 * @should return metadata items of terms matching type
+	 * @should return items of unretired mappings in the order of mapping ids
 	 * @should return nothing if source does not exist
 	 */
 	@Authorized(MetadataMapping.PRIVILEGE_VIEW_METADATA)
 	<T extends OpenmrsMetadata> List<T> getMetadataItems(Class<T> type, String metadataSourceName);
 	
+	/**
+	 * Get metadata items referred to by unretired metadata term mappings with the given codes in the source.
+	 * <p>
+	 * It runs one query for the term mappings and one query for the items per 500 codes.
+	 * @param type type of the metadata items
+	 * @param metadataSourceName metadata source name
+	 * @param metadataTermCodes metadata term codes
+	 * @param <T> type of the metadata items
+	 * @return metadata items by code in the order of the given codes, codes of not found or retired term mappings are
+	 * not included
+	 * @throws InvalidMetadataTypeException when the requested type does not match the type of a metadata item
+	 * referred to by any of the metadata term mappings
+	 * @since 2.1.0
+	 * @should return metadata items by code
+	 * @should fail on type mismatch
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_VIEW_METADATA)
+	<T extends OpenmrsMetadata> Map<String, T> getMetadataItems(Class<T> type, String metadataSourceName,
+	        Collection<String> metadataTermCodes);
+	
+	/**
+	 * Get all metadata items referred to by unretired metadata term mappings of the source, regardless of their types.
+	 * <p>
+	 * It runs one query for the term mappings and one query for the items of each type.
+	 * @param metadataSourceName metadata source name
+	 * @return immutable snapshot of metadata items by code
+	 * @since 2.1.0
+	 * @should return metadata items of all types by code
+	 * @should not include retired terms
+	 * @should return empty snapshot if source does not exist
+	 */
+	@Authorized(MetadataMapping.PRIVILEGE_VIEW_METADATA)
+	MetadataSourceSnapshot getMetadataSourceSnapshot(String metadataSourceName);
+	
 	/**
 	 * Save a new metadata set or update an existing one.
 	 * @param metadataSet object to save
@@ -527,6 +797,7 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * @since 1.2
 	 * @should retire and set info
 	 * @should retire members
+	 * @should not retire members of other sets
 	 */
 	@Authorized(MetadataMapping.PRIVILEGE_MANAGE)
 	MetadataSet retireMetadataSet(MetadataSet metadataSet, String reason);
@@ -554,6 +825,9 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Save a collection of new metadata set members or update an existing ones.
+	 * <p>
+	 * Collections larger than the batch size set in {@link MetadataMapping#GP_BATCH_SIZE} are written and evicted from
+	 * the session batch by batch, thus the returned members are detached.
 	 * @param metadataSetMembers collection of objects to save
 	 * @return the same collection with saved objects
 	 * @since 1.1
@@ -582,8 +856,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get members of a metadata set. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSet metadata set
 	 * @param retiredHandlingMode handle retired objects using this mode
 	 * @return list of members in the order defined by the optional {@link MetadataSetMember#getSortWeight()} values
@@ -596,8 +870,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get members of a metadata set. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSet metadata set
 	 * @param firstResult zero based index of first result to get (null = 0)
 	 * @param maxResults maximum number of results to get (null = get all)
@@ -611,10 +885,30 @@ public interface MetadataMappingService extends OpenmrsService {
 	List<MetadataSetMember> getMetadataSetMembers(MetadataSet metadataSet, Integer firstResult, Integer maxResults,
 	        RetiredHandlingMode retiredHandlingMode);
 	
+	/**
+	 * Get members of a metadata set ordered after the given member. Unlike paging with a first result, the database
+	 * does not need to skip the members of previous pages, and members are neither skipped nor repeated when members
+	 * of previous pages are retired in between.
+	 * <p>
+	 * Members with a sort weight are ordered by descending sort weight and then by descending id, followed by members
+	 * without a sort weight ordered by descending id.
+	 * @param metadataSet metadata set
+	 * @param after last member of the previous page or null to get the first page
+	 * @param maxResults maximum number of results to get
+	 * @param retiredHandlingMode handle retired objects using this mode
+	 * @return list of members ordered after the given member
+	 * @since 2.1.0
+	 * @should get all members page by page
+	 * @should not skip members when retiring them page by page
+	 */
+	@Authorized()
+	List<MetadataSetMember> getMetadataSetMembersAfter(MetadataSet metadataSet, MetadataSetMember after, int maxResults,
+	        RetiredHandlingMode retiredHandlingMode);
+	
 	/**
 	 * Get members of a metadata set with given uuid. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSetUuid metadata set uuid
 	 * @param retiredHandlingMode handle retired objects using this mode
 	 * @return list of members in the order defined by the optional {@link MetadataSetMember#getSortWeight()} values
@@ -627,8 +921,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get members of a metadata set with given uuid. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSetUuid metadata set uuid
 	 * @param firstResult zero based index of first result to get (null = 0)
 	 * @param maxResults maximum number of results to get (null = get all)
@@ -644,8 +938,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get unretired metadata items in the set of specified type. If set members have {@link MetadataSetMember#getSortWeight()} set they will
-	 * be ordered in ascending order according to said weight. Note that due to differences in database implementations,
-	 * the order  will be unpredictable, if there are null sort weights in the set.
+	 * be ordered by descending sort weight and members with equal sort weights by descending id. Members without a
+	 * sort weight come last, ordered by descending id.
 	 * @param type type of the metadata items
 	 * @param metadataSet metadata set
 	 * @param firstResult zero based index of first result to get
@@ -654,6 +948,7 @@ public interface MetadataMappingService extends OpenmrsService {
 	 * @return list of items in the order defined by the optional {@link MetadataSetMember#getSortWeight()} values
 	 * @since 1.2
 	 * @should get unretired metadata items of unretired terms matching type in sort weight order 1
+	 * @should order items like members with equal and null sort weights
 	 * @should throw IllegalArgumentException if set does not exist
 	 */
 	@Authorized(MetadataMapping.PRIVILEGE_VIEW_METADATA)
@@ -662,8 +957,8 @@ public interface MetadataMappingService extends OpenmrsService {
 	
 	/**
 	 * Get unretired metadata items in the set of specified type. If set members have {@link MetadataSetMember#getSortWeight()} set they will
-	 * be ordered in ascending order according to said weight. Note that due to differences in database implementations,
-	 * the order  will be unpredictable, if there are null sort weights in the set.
+	 * be ordered by descending sort weight and members with equal sort weights by descending id. Members without a
+	 * sort weight come last, ordered by descending id.
 	 * @param type type of the metadata items
 	 * @param metadataSet metadata set
 	 * @param <T> type of the metadata items
@@ -0,0 +1,71 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api;
+
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of reconciling the members of a metadata set with a list of metadata items.
+ * @see MetadataMappingService#reconcileMetadataItems(List, String, String)
+ * @since 2.1.0
+ */
+public class MetadataSetReconciliationResult {
+	
+	private final MetadataTermMapping metadataTermMapping;
+	
+	private final List<String> addedMetadataUuids;
+	
+	private final List<String> retiredMetadataUuids;
+	
+	private final List<String> unchangedMetadataUuids;
+	
+	public MetadataSetReconciliationResult(MetadataTermMapping metadataTermMapping, List<String> addedMetadataUuids,
+	    List<String> retiredMetadataUuids, List<String> unchangedMetadataUuids) {
+		this.metadataTermMapping = metadataTermMapping;
+		this.addedMetadataUuids = Collections.unmodifiableList(addedMetadataUuids);
+		this.retiredMetadataUuids = Collections.unmodifiableList(retiredMetadataUuids);
+		this.unchangedMetadataUuids = Collections.unmodifiableList(unchangedMetadataUuids);
+	}
+	
+	/**
+	 * @return created or existing term mapping referring to the metadata set
+	 */
+	public MetadataTermMapping getMetadataTermMapping() {
+		return metadataTermMapping;
+	}
+	
+	/**
+	 * @return uuids of metadata items added to the set, including items of previously retired members
+	 */
+	public List<String> getAddedMetadataUuids() {
+		return addedMetadataUuids;
+	}
+	
+	/**
+	 * @return uuids of metadata items, which members were retired
+	 */
+	public List<String> getRetiredMetadataUuids() {
+		return retiredMetadataUuids;
+	}
+	
+	/**
+	 * @return uuids of metadata items, which were already members of the set
+	 */
+	public List<String> getUnchangedMetadataUuids() {
+		return unchangedMetadataUuids;
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api;
+
+import org.openmrs.OpenmrsMetadata;
+import org.openmrs.module.metadatamapping.api.exception.InvalidMetadataTypeException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all metadata items referred to by unretired term mappings of a metadata source.
+ * <p>
+ * The items are resolved when the snapshot is taken. Callers may keep the snapshot for the life of a request, but
+ * changes made to the mappings after it was taken are not reflected.
+ * @see MetadataMappingService#getMetadataSourceSnapshot(String)
+ * @since 2.1.0
+ */
+public class MetadataSourceSnapshot {
+	
+	private final String metadataSourceName;
+	
+	private final Map<String, OpenmrsMetadata> metadataItemsByCode;
+	
+	public MetadataSourceSnapshot(String metadataSourceName, Map<String, ? extends OpenmrsMetadata> metadataItemsByCode) {
+		this.metadataSourceName = metadataSourceName;
+		this.metadataItemsByCode = Collections.unmodifiableMap(new LinkedHashMap<String, OpenmrsMetadata>(
+		        metadataItemsByCode));
+	}
+	
+	public String getMetadataSourceName() {
+		return metadataSourceName;
+	}
+	
+	/**
+	 * @return unmodifiable map of all metadata items by term code
+	 */
+	public Map<String, OpenmrsMetadata> getMetadataItems() {
+		return metadataItemsByCode;
+	}
+	
+	/**
+	 * @param type type of the metadata items
+	 * @param <T> type of the metadata items
+	 * @return metadata items of the given type by term code
+	 */
+	public <T extends OpenmrsMetadata> Map<String, T> getMetadataItems(Class<T> type) {
+		Map<String, T> metadataItems = new LinkedHashMap<String, T>();
+		for (Map.Entry<String, OpenmrsMetadata> codeAndItem : metadataItemsByCode.entrySet()) {
+			if (type.isInstance(codeAndItem.getValue())) {
+				metadataItems.put(codeAndItem.getKey(), type.cast(codeAndItem.getValue()));
+			}
+		}
+		return metadataItems;
+	}
+	
+	/**
+	 * @param type type of the metadata item
+	 * @param metadataTermCode metadata term code
+	 * @param <T> type of the metadata item
+	 * @return metadata item or null, if the term does not exist or does not refer to an existing item
+	 * @throws InvalidMetadataTypeException when the requested type does not match the type of the metadata item
+	 */
+	public <T extends OpenmrsMetadata> T getMetadataItem(Class<T> type, String metadataTermCode) {
+		OpenmrsMetadata metadataItem = metadataItemsByCode.get(metadataTermCode);
+		if (metadataItem == null) {
+			return null;
+		}
+		if (!type.isInstance(metadataItem)) {
+			throw new InvalidMetadataTypeException("requested type " + type + " of metadata term " + metadataTermCode
+			        + " in source " + metadataSourceName + " refers to type " + metadataItem.getClass());
+		}
+		return type.cast(metadataItem);
+	}
+}
@@ -24,6 +24,12 @@ public class MetadataTermMappingSearchCriteria extends MetadataSearchCriteria {
 	
 	private OpenmrsMetadata referredObject;
 	
+	private String metadataSourceNameOrUuid;
+	
+	private Integer afterMetadataSourceId;
+	
+	private Integer afterMetadataTermMappingId;
+	
 	/**
 	 * Prefer using {@link MetadataTermMappingSearchCriteriaBuilder} instead. Every parameter is optional.
 	 * @param includeAll include retired term mappings
@@ -117,4 +123,38 @@ public class MetadataTermMappingSearchCriteria extends MetadataSearchCriteria {
 	public String getMetadataClass() {
 		return metadataClass;
 	}
+	
+	/**
+	 * @return only get term mappings from the source with this name or uuid
+	 * @since 2.1.0
+	 */
+	public String getMetadataSourceNameOrUuid() {
+		return metadataSourceNameOrUuid;
+	}
+	
+	void setMetadataSourceNameOrUuid(String metadataSourceNameOrUuid) {
+		this.metadataSourceNameOrUuid = metadataSourceNameOrUuid;
+	}
+	
+	/**
+	 * @return only get term mappings ordered after the term mapping with {@link #getAfterMetadataTermMappingId()} in
+	 * this source
+	 * @since 2.1.0
+	 */
+	public Integer getAfterMetadataSourceId() {
+		return afterMetadataSourceId;
+	}
+	
+	/**
+	 * @return only get term mappings ordered after the term mapping with this id
+	 * @since 2.1.0
+	 */
+	public Integer getAfterMetadataTermMappingId() {
+		return afterMetadataTermMappingId;
+	}
+	
+	void setAfter(Integer afterMetadataSourceId, Integer afterMetadataTermMappingId) {
+		this.afterMetadataSourceId = afterMetadataSourceId;
+		this.afterMetadataTermMappingId = afterMetadataTermMappingId;
+	}
 }
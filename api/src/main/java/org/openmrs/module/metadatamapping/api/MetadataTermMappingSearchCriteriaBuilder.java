@@ -28,6 +28,12 @@ public class MetadataTermMappingSearchCriteriaBuilder {
 	
 	private OpenmrsMetadata referredObject;
 	
+	private String metadataSourceNameOrUuid;
+	
+	private Integer afterMetadataSourceId;
+	
+	private Integer afterMetadataTermMappingId;
+	
 	/**
 	 * @param includeAll include retired term mappings
 	 * @return this builder
@@ -120,16 +126,46 @@ public class MetadataTermMappingSearchCriteriaBuilder {
 		return this;
 	}
 	
+	/**
+	 * The source is matched in the same query as the term mappings, so it does not need to be loaded first.
+	 * @param metadataSourceNameOrUuid only get term mappings from the source with this name or uuid
+	 * @return this builder
+	 * @since 2.1.0
+	 */
+	public MetadataTermMappingSearchCriteriaBuilder setMetadataSourceNameOrUuid(String metadataSourceNameOrUuid) {
+		this.metadataSourceNameOrUuid = metadataSourceNameOrUuid;
+		return this;
+	}
+	
+	/**
+	 * Keyset pagination, an alternative to {@link #setFirstResult(Integer)}. Results are ordered by the source and the
+	 * id of the term mapping, thus the next page starts after the last term mapping of the previous page and the
+	 * database does not need to skip the rows of previous pages.
+	 * @param metadataSourceId id of the source of the last term mapping of the previous page
+	 * @param metadataTermMappingId id of the last term mapping of the previous page
+	 * @return this builder
+	 * @since 2.1.0
+	 */
+	public MetadataTermMappingSearchCriteriaBuilder setAfter(Integer metadataSourceId, Integer metadataTermMappingId) {
+		this.afterMetadataSourceId = metadataSourceId;
+		this.afterMetadataTermMappingId = metadataTermMappingId;
+		return this;
+	}
+	
 	/**
 	 * @return search criteria with the values set to this builder
 	 */
 	public MetadataTermMappingSearchCriteria build() {
+		MetadataTermMappingSearchCriteria searchCriteria;
 		if (referredObject != null) {
-			return new MetadataTermMappingSearchCriteria(includeAll, mapped, firstResult, maxResults, metadataSource,
-			        metadataTermCode, metadataTermName, referredObject);
+			searchCriteria = new MetadataTermMappingSearchCriteria(includeAll, mapped, firstResult, maxResults,
+			        metadataSource, metadataTermCode, metadataTermName, referredObject);
 		} else {
-			return new MetadataTermMappingSearchCriteria(includeAll, mapped, firstResult, maxResults, metadataSource,
-			        metadataTermCode, metadataTermName, metadataClass, metadataUuid);
+			searchCriteria = new MetadataTermMappingSearchCriteria(includeAll, mapped, firstResult, maxResults,
+			        metadataSource, metadataTermCode, metadataTermName, metadataClass, metadataUuid);
 		}
+		searchCriteria.setMetadataSourceNameOrUuid(metadataSourceNameOrUuid);
+		searchCriteria.setAfter(afterMetadataSourceId, afterMetadataTermMappingId);
+		return searchCriteria;
 	}
 }
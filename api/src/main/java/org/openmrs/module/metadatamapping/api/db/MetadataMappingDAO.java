@@ -14,8 +14,11 @@
 package org.openmrs.module.metadatamapping.api.db;
 
 import org.openmrs.Concept;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
 import org.openmrs.OpenmrsMetadata;
 import org.openmrs.OpenmrsObject;
+import org.openmrs.User;
 import org.openmrs.module.metadatamapping.MetadataSet;
 import org.openmrs.module.metadatamapping.MetadataSetMember;
 import org.openmrs.module.metadatamapping.MetadataSource;
@@ -24,9 +27,14 @@ import org.openmrs.module.metadatamapping.RetiredHandlingMode;
 import org.openmrs.module.metadatamapping.api.MetadataSetSearchCriteria;
 import org.openmrs.module.metadatamapping.api.MetadataSourceSearchCriteria;
 import org.openmrs.module.metadatamapping.api.MetadataTermMappingSearchCriteria;
+import org.openmrs.module.metadatamapping.api.exception.InvalidMetadataTypeException;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * The DAO.
@@ -42,6 +50,69 @@ public interface MetadataMappingDAO {
 	 */
 	List<Concept> getConcepts(final int firstResult, final int maxResults);
 	
+	/**
+	 * Allows to iterate over concepts in batches using the concept id as a key instead of an offset.
+	 *
+	 * @param afterConceptId only concepts with a greater id are returned, null to start from the first concept
+	 * @param maxResults maximum number of results
+	 * @return the list of concepts ordered by id
+	 * @since 2.1.0
+	 */
+	List<Concept> getConceptsAfter(Integer afterConceptId, int maxResults);
+	
+	/**
+	 * Counts concepts.
+	 *
+	 * @param afterConceptId only concepts with a greater id are counted, null to count all concepts
+	 * @return the number of concepts
+	 * @since 2.1.0
+	 */
+	long getConceptCount(Integer afterConceptId);
+	
+	/**
+	 * Get concept reference terms of the given source with any of the given codes, including retired.
+	 *
+	 * @param conceptSource source of the terms
+	 * @param codes codes of the terms
+	 * @return the list of terms
+	 * @since 2.1.0
+	 */
+	List<ConceptReferenceTerm> getConceptReferenceTerms(ConceptSource conceptSource, Collection<String> codes);
+	
+	/**
+	 * Get concept reference terms of the given source, which any of the given concepts is mapped to and which have
+	 * the id of that concept as the code, including retired.
+	 * 
+	 * @param conceptSource source of the terms
+	 * @param concepts saved concepts
+	 * @return the list of terms
+	 * @since 2.1.0
+	 */
+	List<ConceptReferenceTerm> getMappedConceptReferenceTerms(ConceptSource conceptSource,
+	        Collection<Concept> concepts);
+	
+	/**
+	 * Save new concept reference terms or update existing ones without flushing the session.
+	 *
+	 * @param terms terms to save
+	 * @since 2.1.0
+	 */
+	void saveConceptReferenceTerms(Collection<ConceptReferenceTerm> terms);
+	
+	/**
+	 * Flushes pending changes and evicts all objects from the current session.
+	 * @since 2.1.0
+	 */
+	void flushAndClearSession();
+	
+	/**
+	 * Flushes pending changes and evicts the given objects from the current session. Other objects stay in the
+	 * session.
+	 * @param objects objects to evict
+	 * @since 2.1.0
+	 */
+	void flushAndEvict(Collection<?> objects);
+	
 	/**
 	 * Save a new metadata source or update an existing one.
 	 * @param metadataSource object to save
@@ -70,6 +141,29 @@ public interface MetadataMappingDAO {
 	 */
 	MetadataSource getMetadataSourceByName(String metadataSourceName);
 	
+	/**
+	 * Specifies whether lookups of metadata items and term mappings by source name and term code should use the
+	 * Hibernate query cache. Sources by name and term mappings by source and code are loaded by their natural ids
+	 * instead.
+	 * @param queryCacheEnabled true to cache the results of the lookups
+	 * @since 2.1.0
+	 */
+	void setQueryCacheEnabled(boolean queryCacheEnabled);
+	
+	/**
+	 * Sets the number of objects written to the database at once by {@link #saveMetadataTermMappings(Collection)} and
+	 * {@link #saveMetadataSetMembers(Collection)}.
+	 * @param batchSize positive batch size
+	 * @since 2.1.0
+	 */
+	void setBatchSize(int batchSize);
+	
+	/**
+	 * @return number of objects written to the database at once by the batch save methods
+	 * @since 2.1.0
+	 */
+	int getBatchSize();
+	
 	/**
 	 * Save a new metadata term mapping or update an existing one.
 	 * @param metadataTermMapping object to save
@@ -79,6 +173,10 @@ public interface MetadataMappingDAO {
 	
 	/**
 	 * Batch save for metadata term mappings.
+	 * <p>
+	 * Collections larger than the batch size are flushed and evicted from the session every batch size objects, thus
+	 * the returned objects are detached. Smaller collections are saved as by a single save and stay in the session.
+	 * Updates are sent in JDBC batches, inserts are sent one by one where ids are generated by identity columns.
 	 * @param metadataTermMappings collection of metadata term mappings to save
 	 * @return collection of saved metadata term mappings
 	 * @see #saveMetadataTermMapping(MetadataTermMapping) 
@@ -108,6 +206,46 @@ public interface MetadataMappingDAO {
 	 */
 	List<MetadataTermMapping> getMetadataTermMappings(MetadataTermMappingSearchCriteria searchCriteria);
 	
+	/**
+	 * Get unretired metadata term mappings that refer to any of the given metadata objects.
+	 * @param referredObjects find term mappings that refer to these objects
+	 * @return list of term mappings ordered by id
+	 * @since 2.1.0
+	 */
+	List<MetadataTermMapping> getMetadataTermMappings(Collection<? extends OpenmrsMetadata> referredObjects);
+	
+	/**
+	 * Get metadata term mappings of the source with any of the given codes, including retired ones.
+	 * @param metadataSource source of the term mappings
+	 * @param metadataTermCodes codes of the term mappings
+	 * @return list of term mappings in no particular order
+	 * @since 2.1.0
+	 */
+	List<MetadataTermMapping> getMetadataTermMappings(MetadataSource metadataSource,
+	        Collection<String> metadataTermCodes);
+	
+	/**
+	 * Get those of the given uuids, which objects of the given type exist with, including retired ones.
+	 * @param type type of the objects
+	 * @param uuids uuids of the objects
+	 * @return set of the uuids of existing objects
+	 * @since 2.1.0
+	 */
+	Set<String> getExistingUuids(Class<? extends OpenmrsObject> type, Collection<String> uuids);
+	
+	/**
+	 * Passes all metadata term mappings of the source, including retired ones, to the consumer one at a time ordered
+	 * by id, together with the unretired members of the set a mapping refers to. Mappings and members are read by a
+	 * single query with a forward only cursor and evicted from the session after the consumer returns, thus the
+	 * consumer must not keep references to them.
+	 * @param metadataSource source of the term mappings
+	 * @param consumer consumer of a term mapping and the members of its set ordered by sort weight, or null if the
+	 *            mapping does not refer to a set
+	 * @since 2.1.0
+	 */
+	void scrollMetadataTermMappings(MetadataSource metadataSource,
+	        BiConsumer<MetadataTermMapping, List<MetadataSetMember>> consumer);
+	
 	/**
 	 * Get a specific metadata term mapping from a specific source. 
 	 * @param metadataSource source of the term
@@ -116,6 +254,15 @@ public interface MetadataMappingDAO {
 	 */
 	MetadataTermMapping getMetadataTermMapping(MetadataSource metadataSource, String metadataTermCode);
 	
+	/**
+	 * Get a specific metadata term mapping from a specific source with a single query joining the source.
+	 * @param metadataSourceName name of source of the term
+	 * @param metadataTermCode code of the term
+	 * @return object or null, if does not exist
+	 * @since 2.1.0
+	 */
+	MetadataTermMapping getMetadataTermMapping(String metadataSourceName, String metadataTermCode);
+	
 	/**
 	 * Get metadata item referred to by the given metadata term mapping
 	 * @param type type of the metadata item
@@ -136,6 +283,30 @@ public interface MetadataMappingDAO {
 	 */
 	<T extends OpenmrsMetadata> List<T> getMetadataItems(Class<T> type, String metadataSourceName);
 	
+	/**
+	 * Get metadata items referred to by unretired metadata term mappings with the given codes in the source.
+	 * @param type type of the metadata items
+	 * @param metadataSourceName metadata source name
+	 * @param metadataTermCodes metadata term codes
+	 * @param <T> type of the metadata items
+	 * @return metadata items by code in the order of the given codes
+	 * @throws InvalidMetadataTypeException when the requested type does not match the type of a metadata item
+	 * @since 2.1.0
+	 */
+	<T extends OpenmrsMetadata> Map<String, T> getMetadataItems(Class<T> type, String metadataSourceName,
+	        Collection<String> metadataTermCodes);
+	
+	/**
+	 * Get metadata items referred to by all unretired metadata term mappings of the source.
+	 * <p>
+	 * Term mappings are grouped by the metadata class and the items of each class are loaded with a single query.
+	 * @param metadataSourceName metadata source name
+	 * @return metadata items by code in the order of the term mappings, codes of term mappings referring to not
+	 * existing items or unknown types are not included
+	 * @since 2.1.0
+	 */
+	Map<String, OpenmrsMetadata> getMetadataItemsByCode(String metadataSourceName);
+	
 	/**
 	 * Save a new metadata set or update an existing one.
 	 * @param metadataSet object to save
@@ -167,6 +338,10 @@ public interface MetadataMappingDAO {
 	
 	/**
 	 * Save a collection of new metadata set members or update an existing ones.
+	 * <p>
+	 * Collections larger than the batch size are flushed and evicted from the session every batch size objects, thus
+	 * the returned objects are detached. Smaller collections are saved as by a single save and stay in the session.
+	 * Updates are sent in JDBC batches, inserts are sent one by one where ids are generated by identity columns.
 	 * @param metadataSetMembers collection of objects to save
 	 * @return the same collection with saved objects
 	 * @see #saveMetadataSetMember(MetadataSetMember)
@@ -182,8 +357,8 @@ public interface MetadataMappingDAO {
 	
 	/**
 	 * Get members of a metadata set. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered 
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order 
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSet metadata set
 	 * @param firstResult zero based index of first result to get  (null = 0)
 	 * @param maxResults maximum number of results to get (null = get all)
@@ -193,10 +368,36 @@ public interface MetadataMappingDAO {
 	List<MetadataSetMember> getMetadataSetMembers(MetadataSet metadataSet, Integer firstResult, Integer maxResults,
 	        RetiredHandlingMode retiredHandlingMode);
 	
+	/**
+	 * Get members of a metadata set ordered after the given member, for keyset pagination. Members with a sort weight
+	 * are ordered by descending sort weight and then by descending id, followed by members without a sort weight
+	 * ordered by descending id.
+	 * @param metadataSet metadata set
+	 * @param after last member of the previous page or null to get the first page
+	 * @param maxResults maximum number of results to get
+	 * @param retiredHandlingMode handle retired objects using this mode
+	 * @return list of members ordered after the given member
+	 * @since 2.1.0
+	 */
+	List<MetadataSetMember> getMetadataSetMembersAfter(MetadataSet metadataSet, MetadataSetMember after, int maxResults,
+	        RetiredHandlingMode retiredHandlingMode);
+	
+	/**
+	 * Retire all unretired members of a metadata set with a single update statement, which also records the retiring
+	 * user and date as the last change. Members already loaded in the session are refreshed afterwards.
+	 * @param metadataSet metadata set
+	 * @param retiredBy user retiring the members
+	 * @param dateRetired date of retirement
+	 * @param retireReason reason for retiring the members
+	 * @return the number of retired members
+	 * @since 2.1.0
+	 */
+	int retireMetadataSetMembers(MetadataSet metadataSet, User retiredBy, Date dateRetired, String retireReason);
+	
 	/**
 	 * Get members of a metadata set with given uuid. If members have {@link MetadataSetMember#getSortWeight()} set they will be ordered
-	 * in ascending order according to said weight. Note that due to differences in database implementations, the order
-	 * will be unpredictable, if there are null sort weights in the set.
+	 * by descending sort weight and members with equal sort weights by descending id. Members without a sort weight
+	 * come last, ordered by descending id.
 	 * @param metadataSetUuid metadata set uuid
 	 * @param firstResult zero based index of first result to get (null = 0)
 	 * @param maxResults maximum number of results to get (null = get all)
@@ -208,8 +409,8 @@ public interface MetadataMappingDAO {
 	
 	/**
 	 * Get unretired metadata items in the set. If set members have {@link MetadataSetMember#getSortWeight()} set they will
-	 * be ordered in ascending order according to said weight. Note that due to differences in database implementations,
-	 * the order  will be unpredictable, if there are null sort weights in the set.
+	 * be ordered by descending sort weight and members with equal sort weights by descending id. Members without a
+	 * sort weight come last, ordered by descending id.
 	 * @param type type of the metadata items
 	 * @param metadataSet metadata set
 	 * @param firstResult zero based index of first result to get (null = 0)
@@ -222,8 +423,8 @@ public interface MetadataMappingDAO {
 	
 	/**
 	 * Get unretired metadata items in the set. If set members have {@link MetadataSetMember#getSortWeight()} set they will
-	 * be ordered in ascending order according to said weight. Note that due to differences in database implementations,
-	 * the order  will be unpredictable, if there are null sort weights in the set.
+	 * be ordered by descending sort weight and members with equal sort weights by descending id. Members without a
+	 * sort weight come last, ordered by descending id.
 	 * @param type type of the metadata items
 	 * @param metadataSet metadata set
 	 * @param <T> type of the metadata items
@@ -13,17 +13,32 @@
  */
 package org.openmrs.module.metadatamapping.api.db.hibernate;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.Subqueries;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.openmrs.Concept;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
 import org.openmrs.OpenmrsMetadata;
 import org.openmrs.OpenmrsObject;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
 import org.openmrs.api.db.hibernate.DbSession;
 import org.openmrs.api.db.hibernate.DbSessionFactory;
+import org.openmrs.module.metadatamapping.MetadataMapping;
 import org.openmrs.module.metadatamapping.MetadataSet;
 import org.openmrs.module.metadatamapping.MetadataSetMember;
 import org.openmrs.module.metadatamapping.MetadataSource;
@@ -38,9 +53,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Hibernate DAO implementation.
@@ -48,9 +72,20 @@ import java.util.List;
 @Component("metadatamapping.MetadataMappingDAO")
 public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 	
+	private static final Log log = LogFactory.getLog(HibernateMetadataMappingDAO.class);
+	
+	/**
+	 * Maximum number of parameters bound to a single {@code IN} clause.
+	 */
+	static final int MAX_IN_PARAMETERS = 500;
+	
 	@Autowired
 	private DbSessionFactory sessionFactory;
 	
+	private volatile boolean queryCacheEnabled;
+	
+	private volatile int batchSize = MetadataMapping.DEFAULT_BATCH_SIZE;
+	
 	public DbSession getCurrentSession() {
 		return sessionFactory.getCurrentSession();
 	}
@@ -71,6 +106,119 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 		return list;
 	}
 	
+	/**
+	 * @see MetadataMappingDAO#getConceptsAfter(Integer, int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Concept> getConceptsAfter(Integer afterConceptId, int maxResults) {
+		Criteria criteria = getCurrentSession().createCriteria(Concept.class);
+		if (afterConceptId != null) {
+			criteria.add(Restrictions.gt("conceptId", afterConceptId));
+		}
+		criteria.addOrder(Order.asc("conceptId"));
+		criteria.setMaxResults(maxResults);
+		
+		@SuppressWarnings("unchecked")
+		List<Concept> list = criteria.list();
+		return list;
+	}
+	
+	/**
+	 * @see MetadataMappingDAO#getConceptCount(Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public long getConceptCount(Integer afterConceptId) {
+		Criteria criteria = getCurrentSession().createCriteria(Concept.class);
+		if (afterConceptId != null) {
+			criteria.add(Restrictions.gt("conceptId", afterConceptId));
+		}
+		criteria.setProjection(Projections.rowCount());
+		return ((Number) criteria.uniqueResult()).longValue();
+	}
+	
+	/**
+	 * @see MetadataMappingDAO#getConceptReferenceTerms(ConceptSource, Collection)
+	 */
+	@Override
+	@SuppressWarnings(value = "unchecked")
+	@Transactional(readOnly = true)
+	public List<ConceptReferenceTerm> getConceptReferenceTerms(ConceptSource conceptSource, Collection<String> codes) {
+		List<ConceptReferenceTerm> terms = new ArrayList<ConceptReferenceTerm>();
+		List<String> uniqueCodes = new ArrayList<String>(new LinkedHashSet<String>(codes));
+		for (int i = 0; i < uniqueCodes.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = uniqueCodes.subList(i, Math.min(i + MAX_IN_PARAMETERS, uniqueCodes.size()));
+			Criteria criteria = getCurrentSession().createCriteria(ConceptReferenceTerm.class);
+			criteria.add(Restrictions.eq("conceptSource", conceptSource));
+			criteria.add(Restrictions.in("code", chunk));
+			terms.addAll(criteria.list());
+		}
+		return terms;
+	}
+	
+	/**
+	 * @see MetadataMappingDAO#getMappedConceptReferenceTerms(ConceptSource, Collection)
+	 */
+	@Override
+	@SuppressWarnings(value = "unchecked")
+	@Transactional(readOnly = true)
+	public List<ConceptReferenceTerm> getMappedConceptReferenceTerms(ConceptSource conceptSource,
+	        Collection<Concept> concepts) {
+		List<Integer> conceptIds = new ArrayList<Integer>(concepts.size());
+		for (Concept concept : concepts) {
+			conceptIds.add(concept.getConceptId());
+		}
+		
+		Set<ConceptReferenceTerm> terms = new LinkedHashSet<ConceptReferenceTerm>();
+		for (int i = 0; i < conceptIds.size(); i += MAX_IN_PARAMETERS) {
+			List<Integer> chunk = conceptIds.subList(i, Math.min(i + MAX_IN_PARAMETERS, conceptIds.size()));
+			List<String> codes = new ArrayList<String>(chunk.size());
+			for (Integer conceptId : chunk) {
+				codes.add(conceptId.toString());
+			}
+			List<Object[]> rows = getCurrentSession()
+			        .createQuery(
+			            "select term, concept.conceptId from " + Concept.class.getName() + " concept "
+			                    + "join concept.conceptMappings map join map.conceptReferenceTerm term "
+			                    + "where concept.conceptId in (:conceptIds) and term.conceptSource = :conceptSource "
+			                    + "and term.code in (:codes)").setParameterList("conceptIds", chunk)
+			        .setParameter("conceptSource", conceptSource).setParameterList("codes", codes).list();
+			// Terms having the id of another concept of the chunk as the code are not mapped to the concept itself
+			for (Object[] row : rows) {
+				ConceptReferenceTerm term = (ConceptReferenceTerm) row[0];
+				if (term.getCode().equals(row[1].toString())) {
+					terms.add(term);
+				}
+			}
+		}
+		return new ArrayList<ConceptReferenceTerm>(terms);
+	}
+	
+	/**
+	 * @see MetadataMappingDAO#saveConceptReferenceTerms(Collection)
+	 */
+	@Override
+	public void saveConceptReferenceTerms(Collection<ConceptReferenceTerm> terms) {
+		for (ConceptReferenceTerm term : terms) {
+			getCurrentSession().saveOrUpdate(term);
+		}
+	}
+	
+	@Override
+	public void flushAndClearSession() {
+		getCurrentSession().flush();
+		getCurrentSession().clear();
+	}
+	
+	@Override
+	public void flushAndEvict(Collection<?> objects) {
+		getCurrentSession().flush();
+		for (Object object : objects) {
+			getCurrentSession().evict(object);
+		}
+	}
+	
 	@Override
 	public MetadataSource saveMetadataSource(MetadataSource metadataSource) {
 		getCurrentSession().saveOrUpdate(metadataSource);
@@ -110,9 +258,33 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 	
 	@Override
 	public MetadataSource getMetadataSourceByName(String metadataSourceName) {
-		Criteria criteria = getCurrentSession().createCriteria(MetadataSource.class);
-		criteria.add(Restrictions.eq("name", metadataSourceName));
-		return (MetadataSource) criteria.uniqueResult();
+		if (metadataSourceName == null) {
+			return null;
+		}
+		// Loaded by the natural id, so that repeated lookups are answered by the session and the second-level cache.
+		// The natural id is mutable, thus synchronization is disabled, or Hibernate would check all sources in the
+		// session for changed names on each lookup. A source renamed in the session is found by the new name only
+		// after a flush.
+		return getHibernateSession().bySimpleNaturalId(MetadataSource.class).setSynchronizationEnabled(false)
+		        .load(metadataSourceName);
+	}
+	
+	@Override
+	public void setQueryCacheEnabled(boolean queryCacheEnabled) {
+		this.queryCacheEnabled = queryCacheEnabled;
+	}
+	
+	@Override
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+	
+	@Override
+	public int getBatchSize() {
+		return batchSize;
 	}
 	
 	@Override
@@ -122,9 +294,7 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 	
 	@Override
 	public Collection<MetadataTermMapping> saveMetadataTermMappings(Collection<MetadataTermMapping> metadataTermMappings) {
-		for (MetadataTermMapping metadataTermMapping : metadataTermMappings) {
-			internalSaveMetadataTermMapping(metadataTermMapping);
-		}
+		saveInBatches(metadataTermMappings);
 		return metadataTermMappings;
 	}
 	
@@ -174,6 +344,12 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 			criteria.add(Restrictions.eq("metadataSource", searchCriteria.getMetadataSource()));
 		}
 		
+		if (searchCriteria.getMetadataSourceNameOrUuid() != null) {
+			criteria.createAlias("metadataSource", "source");
+			criteria.add(Restrictions.or(Restrictions.eq("source.uuid", searchCriteria.getMetadataSourceNameOrUuid()),
+			    Restrictions.eq("source.name", searchCriteria.getMetadataSourceNameOrUuid())));
+		}
+		
 		if (searchCriteria.getMetadataTermCode() != null) {
 			criteria.add(Restrictions.eq("code", searchCriteria.getMetadataTermCode()));
 		}
@@ -182,6 +358,16 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 			criteria.add(Restrictions.eq("name", searchCriteria.getMetadataTermName()));
 		}
 		
+		if (searchCriteria.getAfterMetadataSourceId() != null
+		        && searchCriteria.getAfterMetadataTermMappingId() != null) {
+			// Continue after the given row of the ordering below, which is a range scan of the source index
+			criteria.add(Restrictions.or(
+			    Restrictions.gt("metadataSource.metadataSourceId", searchCriteria.getAfterMetadataSourceId()),
+			    Restrictions.and(
+			        Restrictions.eq("metadataSource.metadataSourceId", searchCriteria.getAfterMetadataSourceId()),
+			        Restrictions.gt("metadataTermMappingId", searchCriteria.getAfterMetadataTermMappingId()))));
+		}
+		
 		// Set ordering so as to ensure a consistent ordering of the results on consecutive invocations
 		criteria.addOrder(Order.asc("metadataSource"));
 		criteria.addOrder(Order.asc("metadataTermMappingId"));
@@ -196,15 +382,145 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 		return criteria.list();
 	}
 	
+	@Override
+	@SuppressWarnings(value = "unchecked")
+	public List<MetadataTermMapping> getMetadataTermMappings(Collection<? extends OpenmrsMetadata> referredObjects) {
+		Map<String, String> metadataClassesByUuid = new LinkedHashMap<String, String>();
+		for (OpenmrsMetadata referredObject : referredObjects) {
+			// Unwrap Hibernate proxies to get the mapped class
+			metadataClassesByUuid.put(referredObject.getUuid(), Hibernate.getClass(referredObject).getCanonicalName());
+		}
+		
+		List<MetadataTermMapping> termMappings = new ArrayList<MetadataTermMapping>();
+		List<String> uuids = new ArrayList<String>(metadataClassesByUuid.keySet());
+		for (int i = 0; i < uuids.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = uuids.subList(i, Math.min(i + MAX_IN_PARAMETERS, uuids.size()));
+			Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class);
+			criteria.add(Restrictions.in("metadataUuid", chunk));
+			criteria.add(Restrictions.eq("retired", false));
+			criteria.addOrder(Order.asc("metadataTermMappingId"));
+			for (MetadataTermMapping termMapping : (List<MetadataTermMapping>) criteria.list()) {
+				// Filtering on metadataClass should be redundant as uuids should be globally unique
+				if (metadataClassesByUuid.get(termMapping.getMetadataUuid()).equals(termMapping.getMetadataClass())) {
+					termMappings.add(termMapping);
+				}
+			}
+		}
+		return termMappings;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<MetadataTermMapping> getMetadataTermMappings(MetadataSource metadataSource,
+	        Collection<String> metadataTermCodes) {
+		List<MetadataTermMapping> termMappings = new ArrayList<MetadataTermMapping>();
+		List<String> codes = new ArrayList<String>(new LinkedHashSet<String>(metadataTermCodes));
+		for (int i = 0; i < codes.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = codes.subList(i, Math.min(i + MAX_IN_PARAMETERS, codes.size()));
+			Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class);
+			criteria.add(Restrictions.eq("metadataSource", metadataSource));
+			criteria.add(Restrictions.in("code", chunk));
+			termMappings.addAll(criteria.list());
+		}
+		return termMappings;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Set<String> getExistingUuids(Class<? extends OpenmrsObject> type, Collection<String> uuids) {
+		Set<String> existingUuids = new HashSet<String>();
+		List<String> uniqueUuids = new ArrayList<String>(new LinkedHashSet<String>(uuids));
+		for (int i = 0; i < uniqueUuids.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = uniqueUuids.subList(i, Math.min(i + MAX_IN_PARAMETERS, uniqueUuids.size()));
+			Criteria criteria = getCurrentSession().createCriteria(type);
+			criteria.add(Restrictions.in("uuid", chunk));
+			criteria.setProjection(Projections.property("uuid"));
+			existingUuids.addAll(criteria.list());
+		}
+		return existingUuids;
+	}
+	
+	@Override
+	public void scrollMetadataTermMappings(MetadataSource metadataSource,
+	        BiConsumer<MetadataTermMapping, List<MetadataSetMember>> consumer) {
+		// Members are joined rather than queried per set, since MySQL does not allow other queries on the connection
+		// while a result is streamed
+		ScrollableResults results = getCurrentSession()
+		        .createQuery(
+		            "select mapping, member from " + MetadataTermMapping.class.getName() + " mapping "
+		                    + "left join " + MetadataSet.class.getName() + " metadataSet "
+		                    + "on mapping.metadataClass = :metadataSetClass "
+		                    + "and metadataSet.uuid = mapping.metadataUuid "
+		                    + "left join " + MetadataSetMember.class.getName() + " member "
+		                    + "on member.metadataSet = metadataSet and member.retired = false "
+		                    + "where mapping.metadataSource = :metadataSource "
+		                    + "order by mapping.metadataTermMappingId, member.sortWeight desc, "
+		                    + "member.metadataSetMemberId")
+		        .setParameter("metadataSetClass", MetadataSet.class.getCanonicalName())
+		        .setParameter("metadataSource", metadataSource).setReadOnly(true)
+		        .setFetchSize(getScrollFetchSize(batchSize)).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			MetadataTermMapping metadataTermMapping = null;
+			List<MetadataSetMember> metadataSetMembers = null;
+			while (results.next()) {
+				MetadataTermMapping rowMapping = (MetadataTermMapping) results.get(0);
+				if (rowMapping != metadataTermMapping) {
+					acceptAndEvict(consumer, metadataTermMapping, metadataSetMembers);
+					metadataTermMapping = rowMapping;
+					boolean refersToSet = MetadataSet.class.getCanonicalName().equals(rowMapping.getMetadataClass());
+					metadataSetMembers = refersToSet ? new ArrayList<MetadataSetMember>() : null;
+				}
+				MetadataSetMember rowMember = (MetadataSetMember) results.get(1);
+				if (rowMember != null && metadataSetMembers != null) {
+					metadataSetMembers.add(rowMember);
+				}
+			}
+			acceptAndEvict(consumer, metadataTermMapping, metadataSetMembers);
+		}
+		finally {
+			results.close();
+		}
+	}
+	
+	private void acceptAndEvict(BiConsumer<MetadataTermMapping, List<MetadataSetMember>> consumer,
+	        MetadataTermMapping metadataTermMapping, List<MetadataSetMember> metadataSetMembers) {
+		if (metadataTermMapping == null) {
+			return;
+		}
+		consumer.accept(metadataTermMapping, metadataSetMembers);
+		Session session = getHibernateSession();
+		session.evict(metadataTermMapping);
+		if (metadataSetMembers != null) {
+			for (MetadataSetMember metadataSetMember : metadataSetMembers) {
+				session.evict(metadataSetMember);
+			}
+		}
+	}
+	
 	@Override
 	public MetadataTermMapping getMetadataTermMapping(MetadataSource metadataSource, String metadataTermCode) {
-		Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class);
-		criteria.add(Restrictions.eq("metadataSource", metadataSource));
-		criteria.add(Restrictions.eq("code", metadataTermCode));
+		if (metadataSource == null || metadataTermCode == null) {
+			return null;
+		}
+		// Loaded by the natural id, so that repeated lookups are answered by the session and the second-level cache.
+		// Synchronization is disabled as for sources, since bulk saves and imports keep many mappings in the session.
+		// A code changed in the session is found only after a flush.
+		return getHibernateSession().byNaturalId(MetadataTermMapping.class).using("metadataSource", metadataSource)
+		        .using("code", metadataTermCode).setSynchronizationEnabled(false).load();
+	}
+	
+	@Override
+	public MetadataTermMapping getMetadataTermMapping(String metadataSourceName, String metadataTermCode) {
+		Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class, "mapping");
+		criteria.createAlias("mapping.metadataSource", "source");
+		criteria.add(Restrictions.eq("source.name", metadataSourceName));
+		criteria.add(Restrictions.eq("mapping.code", metadataTermCode));
+		criteria.setCacheable(queryCacheEnabled);
 		return (MetadataTermMapping) criteria.uniqueResult();
 	}
 	
 	@Override
+	@SuppressWarnings(value = "unchecked")
 	public <T extends OpenmrsMetadata> T getMetadataItem(Class<T> type, String metadataSourceName, String metadataTermCode) {
 		Criteria criteria = createSourceMetadataTermCriteria(metadataSourceName, null, metadataTermCode);
 		MetadataTermMapping metadataTermMapping = (MetadataTermMapping) criteria.uniqueResult();
@@ -215,23 +531,118 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 				throw new InvalidMetadataTypeException("requested type " + type + " of metadata term mapping "
 				        + metadataTermMapping.getUuid() + " refers to type " + metadataTermMapping.getMetadataClass());
 			}
-			metadataItem = internalGetByUuid(type, metadataTermMapping.getMetadataUuid());
+			Criteria itemCriteria = getCurrentSession().createCriteria(type);
+			itemCriteria.add(Restrictions.eq("uuid", metadataTermMapping.getMetadataUuid()));
+			itemCriteria.setCacheable(queryCacheEnabled);
+			metadataItem = (T) itemCriteria.uniqueResult();
 		}
 		return metadataItem;
 	}
 	
+	@Override
+	@SuppressWarnings(value = "unchecked")
+	public <T extends OpenmrsMetadata> Map<String, T> getMetadataItems(Class<T> type, String metadataSourceName,
+	        Collection<String> metadataTermCodes) {
+		Map<String, String> metadataUuidsByCode = new HashMap<String, String>();
+		List<String> codes = new ArrayList<String>(new LinkedHashSet<String>(metadataTermCodes));
+		for (int i = 0; i < codes.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = codes.subList(i, Math.min(i + MAX_IN_PARAMETERS, codes.size()));
+			Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class, "mapping");
+			criteria.createAlias("mapping.metadataSource", "source");
+			criteria.add(Restrictions.eq("source.name", metadataSourceName));
+			criteria.add(Restrictions.eq("mapping.retired", false));
+			criteria.add(Restrictions.in("mapping.code", chunk));
+			for (MetadataTermMapping metadataTermMapping : (List<MetadataTermMapping>) criteria.list()) {
+				if (!type.getCanonicalName().equals(metadataTermMapping.getMetadataClass())) {
+					throw new InvalidMetadataTypeException("requested type " + type + " of metadata term mapping "
+					        + metadataTermMapping.getUuid() + " refers to type " + metadataTermMapping.getMetadataClass());
+				}
+				if (metadataTermMapping.getMetadataUuid() != null) {
+					metadataUuidsByCode.put(metadataTermMapping.getCode(), metadataTermMapping.getMetadataUuid());
+				}
+			}
+		}
+		
+		Map<String, T> metadataItemsByUuid = internalGetByUuids(type, metadataUuidsByCode.values());
+		Map<String, T> metadataItemsByCode = new LinkedHashMap<String, T>();
+		for (String code : codes) {
+			T metadataItem = metadataItemsByUuid.get(metadataUuidsByCode.get(code));
+			if (metadataItem != null) {
+				metadataItemsByCode.put(code, metadataItem);
+			}
+		}
+		return metadataItemsByCode;
+	}
+	
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T extends OpenmrsMetadata> List<T> getMetadataItems(Class<T> type, String metadataSourceName) {
-		List<T> metadataItems = new LinkedList<T>();
-		Criteria metadataTermCriteria = createSourceMetadataTermCriteria(metadataSourceName, type, null);
-		for (MetadataTermMapping metadataTermMapping : (List<MetadataTermMapping>) metadataTermCriteria.list()) {
-			T metadataItem = internalGetByUuid(type, metadataTermMapping.getMetadataUuid());
+		// Resolve the items with a single join instead of a query per mapping. Mappings referring to items that do not
+		// exist are skipped by the inner join.
+		return getCurrentSession()
+		        .createQuery(
+		            "select item from " + type.getName() + " item, " + MetadataTermMapping.class.getName() + " mapping "
+		                    + "where mapping.metadataUuid = item.uuid and mapping.metadataClass = :metadataClass "
+		                    + "and mapping.retired = false and mapping.metadataSource.name = :metadataSourceName "
+		                    + "order by mapping.metadataTermMappingId")
+		        .setParameter("metadataClass", type.getCanonicalName())
+		        .setParameter("metadataSourceName", metadataSourceName).list();
+	}
+	
+	@Override
+	@SuppressWarnings(value = "unchecked")
+	public Map<String, OpenmrsMetadata> getMetadataItemsByCode(String metadataSourceName) {
+		Criteria criteria = getCurrentSession().createCriteria(MetadataTermMapping.class, "mapping");
+		criteria.createAlias("mapping.metadataSource", "source");
+		criteria.add(Restrictions.eq("source.name", metadataSourceName));
+		criteria.add(Restrictions.eq("mapping.retired", false));
+		criteria.add(Restrictions.isNotNull("mapping.metadataClass"));
+		criteria.add(Restrictions.isNotNull("mapping.metadataUuid"));
+		criteria.addOrder(Order.asc("mapping.metadataTermMappingId"));
+		criteria.setProjection(Projections.projectionList().add(Projections.property("mapping.code"))
+		        .add(Projections.property("mapping.metadataClass")).add(Projections.property("mapping.metadataUuid")));
+		List<Object[]> rows = criteria.list();
+		
+		// Group the rows by class so that items of each class are loaded with a single uuid IN query
+		Map<String, List<String>> uuidsByClass = new LinkedHashMap<String, List<String>>();
+		for (Object[] row : rows) {
+			List<String> uuids = uuidsByClass.get(row[1]);
+			if (uuids == null) {
+				uuids = new ArrayList<String>();
+				uuidsByClass.put((String) row[1], uuids);
+			}
+			uuids.add((String) row[2]);
+		}
+		
+		Map<String, Map<String, ? extends OpenmrsMetadata>> itemsByUuidByClass =
+		        new HashMap<String, Map<String, ? extends OpenmrsMetadata>>();
+		for (Map.Entry<String, List<String>> classAndUuids : uuidsByClass.entrySet()) {
+			Class<? extends OpenmrsMetadata> type;
+			try {
+				type = Context.loadClass(classAndUuids.getKey()).asSubclass(OpenmrsMetadata.class);
+			}
+			catch (ClassNotFoundException e) {
+				log.warn("Skipping metadata term mappings of source " + metadataSourceName
+				        + " referring to unknown type " + classAndUuids.getKey());
+				continue;
+			}
+			catch (ClassCastException e) {
+				log.warn("Skipping metadata term mappings of source " + metadataSourceName
+				        + " referring to type, which is not metadata " + classAndUuids.getKey());
+				continue;
+			}
+			itemsByUuidByClass.put(classAndUuids.getKey(), internalGetByUuids(type, classAndUuids.getValue()));
+		}
+		
+		Map<String, OpenmrsMetadata> metadataItemsByCode = new LinkedHashMap<String, OpenmrsMetadata>();
+		for (Object[] row : rows) {
+			Map<String, ? extends OpenmrsMetadata> itemsByUuid = itemsByUuidByClass.get(row[1]);
+			OpenmrsMetadata metadataItem = itemsByUuid != null ? itemsByUuid.get(row[2]) : null;
 			if (metadataItem != null) {
-				metadataItems.add(metadataItem);
+				metadataItemsByCode.put((String) row[0], metadataItem);
 			}
 		}
-		return metadataItems;
+		return metadataItemsByCode;
 	}
 	
 	@Override
@@ -274,9 +685,7 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 	
 	@Override
 	public Collection<MetadataSetMember> saveMetadataSetMembers(Collection<MetadataSetMember> metadataSetMembers) {
-		for (MetadataSetMember metadataSetMember : metadataSetMembers) {
-			internalSaveMetadataSetMember(metadataSetMember);
-		}
+		saveInBatches(metadataSetMembers);
 		return metadataSetMembers;
 	}
 	
@@ -289,21 +698,70 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 	@SuppressWarnings("unchecked")
 	public List<MetadataSetMember> getMetadataSetMembers(MetadataSet metadataSet, Integer firstResult, Integer maxResults,
 	        RetiredHandlingMode retiredHandlingMode) {
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(MetadataSetMember.class);
-		criteria.addOrder(Order.desc("sortWeight"));
-		
-		if (RetiredHandlingMode.ONLY_ACTIVE.equals(retiredHandlingMode)) {
-			criteria.add(Restrictions.eq("retired", false));
+		// The same total order as getMetadataSetMembersAfter, so that pages by first result and by the last member of
+		// the previous page match and members with equal or null sort weights are not repeated or skipped
+		return listInSortWeightOrder(new Supplier<Criteria>() {
+			
+			@Override
+			public Criteria get() {
+				return createMetadataSetMembersCriteria(metadataSet, retiredHandlingMode);
+			}
+		}, firstResult, maxResults);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<MetadataSetMember> getMetadataSetMembersAfter(MetadataSet metadataSet, MetadataSetMember after,
+	        int maxResults, RetiredHandlingMode retiredHandlingMode) {
+		// Members with and without a sort weight are read with separate queries, so that each of them is a range scan
+		// of the (metadata_set_id, retired, sort_weight) index regardless of how the database orders nulls
+		List<MetadataSetMember> members = new ArrayList<MetadataSetMember>();
+		if (after == null || after.getSortWeight() != null) {
+			Criteria criteria = createMetadataSetMembersCriteria(metadataSet, retiredHandlingMode);
+			criteria.add(Restrictions.isNotNull("sortWeight"));
+			if (after != null) {
+				criteria.add(Restrictions.or(
+				    Restrictions.lt("sortWeight", after.getSortWeight()),
+				    Restrictions.and(Restrictions.eq("sortWeight", after.getSortWeight()),
+				        Restrictions.lt("metadataSetMemberId", after.getMetadataSetMemberId()))));
+			}
+			criteria.addOrder(Order.desc("sortWeight"));
+			criteria.addOrder(Order.desc("metadataSetMemberId"));
+			criteria.setMaxResults(maxResults);
+			members.addAll(criteria.list());
 		}
-		criteria.add(Restrictions.eq("metadataSet", metadataSet));
 		
-		if (firstResult != null) {
-			criteria.setFirstResult(firstResult);
+		if (members.size() < maxResults) {
+			Criteria criteria = createMetadataSetMembersCriteria(metadataSet, retiredHandlingMode);
+			criteria.add(Restrictions.isNull("sortWeight"));
+			if (after != null && after.getSortWeight() == null) {
+				criteria.add(Restrictions.lt("metadataSetMemberId", after.getMetadataSetMemberId()));
+			}
+			criteria.addOrder(Order.desc("metadataSetMemberId"));
+			criteria.setMaxResults(maxResults - members.size());
+			members.addAll(criteria.list());
 		}
-		if (maxResults != null) {
-			criteria.setMaxResults(maxResults);
+		return members;
+	}
+	
+	@Override
+	public int retireMetadataSetMembers(MetadataSet metadataSet, User retiredBy, Date dateRetired,
+	        String retireReason) {
+		// The statement bypasses the session, thus pending changes must be written first. Hibernate invalidates the
+		// second-level cache region of the members itself.
+		getCurrentSession().flush();
+		int retiredMembers = getCurrentSession()
+		        .createQuery(
+		            "update " + MetadataSetMember.class.getName() + " set retired = true, retiredBy = :retiredBy, "
+		                    + "dateRetired = :dateRetired, retireReason = :retireReason, changedBy = :retiredBy, "
+		                    + "dateChanged = :dateRetired where metadataSet = :metadataSet and retired = false")
+		        .setParameter("retiredBy", retiredBy).setParameter("dateRetired", dateRetired)
+		        .setParameter("retireReason", retireReason).setParameter("metadataSet", metadataSet).executeUpdate();
+		
+		if (retiredMembers > 0) {
+			refreshMetadataSetMembersInSession(metadataSet);
 		}
-		return criteria.list();
+		return retiredMembers;
 	}
 	
 	@Override
@@ -325,6 +783,87 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 		return internalGetMetadataSetItems(type, metadataSet, null, null);
 	}
 	
+	private Criteria createMetadataSetMembersCriteria(MetadataSet metadataSet, RetiredHandlingMode retiredHandlingMode) {
+		Criteria criteria = getCurrentSession().createCriteria(MetadataSetMember.class);
+		criteria.add(Restrictions.eq("metadataSet", metadataSet));
+		if (RetiredHandlingMode.ONLY_ACTIVE.equals(retiredHandlingMode)) {
+			criteria.add(Restrictions.eq("retired", false));
+		}
+		return criteria;
+	}
+	
+	/**
+	 * Lists the results of member criteria ordered by descending sort weight and descending id, followed by members
+	 * without a sort weight ordered by descending id. Members with and without a sort weight are read with separate
+	 * queries as in {@link #getMetadataSetMembersAfter}, since an explicit null precedence is emulated with an
+	 * expression on MySQL, which prevents the (metadata_set_id, retired, sort_weight, metadata_set_member_id) index
+	 * from serving the order.
+	 * @param criteriaSupplier creates new criteria of members of a single set, called once per query
+	 * @param firstResult index of the first result or null to start from the first one
+	 * @param maxResults maximum number of results or null for all
+	 * @return the results in the order of the members
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> List<T> listInSortWeightOrder(Supplier<Criteria> criteriaSupplier, Integer firstResult,
+	        Integer maxResults) {
+		Criteria criteria = criteriaSupplier.get();
+		criteria.add(Restrictions.isNotNull("sortWeight"));
+		criteria.addOrder(Order.desc("sortWeight"));
+		criteria.addOrder(Order.desc("metadataSetMemberId"));
+		if (firstResult != null) {
+			criteria.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			criteria.setMaxResults(maxResults);
+		}
+		List<T> results = new ArrayList<T>(criteria.list());
+		if (maxResults != null && results.size() >= maxResults) {
+			return results;
+		}
+		
+		criteria = criteriaSupplier.get();
+		criteria.add(Restrictions.isNull("sortWeight"));
+		criteria.addOrder(Order.desc("metadataSetMemberId"));
+		if (firstResult != null && firstResult > 0 && results.isEmpty()) {
+			// The first result is past the members with a sort weight, thus they need to be counted
+			Criteria countCriteria = criteriaSupplier.get();
+			countCriteria.add(Restrictions.isNotNull("sortWeight"));
+			countCriteria.setProjection(Projections.rowCount());
+			int weightedCount = ((Number) countCriteria.uniqueResult()).intValue();
+			criteria.setFirstResult(Math.max(firstResult - weightedCount, 0));
+		}
+		if (maxResults != null) {
+			criteria.setMaxResults(maxResults - results.size());
+		}
+		results.addAll(criteria.list());
+		return results;
+	}
+	
+	/**
+	 * Reloads members of the set, which are already in the session, so that they reflect changes of bulk statements.
+	 */
+	private void refreshMetadataSetMembersInSession(MetadataSet metadataSet) {
+		Session session = getHibernateSession();
+		List<MetadataSetMember> metadataSetMembers = new ArrayList<MetadataSetMember>();
+		for (Object entity : session.unwrap(SessionImplementor.class).getPersistenceContext().getEntitiesByKey()
+		        .values()) {
+			if (entity instanceof MetadataSetMember
+			        && metadataSet.equals(((MetadataSetMember) entity).getMetadataSet())) {
+				metadataSetMembers.add((MetadataSetMember) entity);
+			}
+		}
+		for (MetadataSetMember metadataSetMember : metadataSetMembers) {
+			session.refresh(metadataSetMember);
+		}
+	}
+	
+	/**
+	 * Natural id loaders are not exposed by {@link DbSession}.
+	 */
+	private Session getHibernateSession() {
+		return sessionFactory.getHibernateSessionFactory().getCurrentSession();
+	}
+	
 	private MetadataTermMapping internalSaveMetadataTermMapping(MetadataTermMapping metadataTermMapping) {
 		getCurrentSession().saveOrUpdate(metadataTermMapping);
 		return metadataTermMapping;
@@ -335,6 +874,60 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 		return metadataSetMember;
 	}
 	
+	/**
+	 * Saves the objects. Collections larger than the batch size are flushed every batch size objects with the JDBC
+	 * batch size of the session set to the batch size, and each flushed batch is evicted, so that the session does not
+	 * grow with the size of the collection. Other objects in the session are not evicted.
+	 * <p>
+	 * Hibernate batches updates, but it cannot batch inserts of entities, whose ids are generated by identity columns,
+	 * which is what the native generator does on MySQL. Such inserts are sent one by one on each flush.
+	 */
+	private <T extends OpenmrsObject> void saveInBatches(Collection<T> objects) {
+		if (objects.size() <= batchSize) {
+			for (T object : objects) {
+				getCurrentSession().saveOrUpdate(object);
+			}
+			return;
+		}
+		
+		Session session = getHibernateSession();
+		int batchSize = this.batchSize;
+		Integer previousJdbcBatchSize = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(batchSize);
+		try {
+			List<OpenmrsObject> batch = new ArrayList<OpenmrsObject>(batchSize);
+			for (OpenmrsObject object : objects) {
+				session.saveOrUpdate(object);
+				batch.add(object);
+				if (batch.size() == batchSize) {
+					flushAndEvict(session, batch);
+				}
+			}
+			flushAndEvict(session, batch);
+		}
+		finally {
+			session.setJdbcBatchSize(previousJdbcBatchSize);
+		}
+	}
+	
+	/**
+	 * MySQL and MariaDB drivers read the whole result into memory unless the fetch size is {@link Integer#MIN_VALUE},
+	 * which makes them stream rows one at a time. Other drivers fetch the given number of rows at once.
+	 */
+	private int getScrollFetchSize(int fetchSize) {
+		Dialect dialect = getHibernateSession().getSessionFactory().unwrap(SessionFactoryImplementor.class)
+		        .getJdbcServices().getDialect();
+		return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : fetchSize;
+	}
+	
+	private void flushAndEvict(Session session, List<OpenmrsObject> batch) {
+		session.flush();
+		for (OpenmrsObject object : batch) {
+			session.evict(object);
+		}
+		batch.clear();
+	}
+	
 	@SuppressWarnings(value = "unchecked")
 	private <T extends OpenmrsObject> T internalGetByUuid(Class<T> openmrsObjectClass, String uuid) {
 		Criteria criteria = getCurrentSession().createCriteria(openmrsObjectClass);
@@ -354,6 +947,7 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 		}
 		
 		criteria = criteria.createCriteria("metadataSource").add(Restrictions.eq("name", metadataSourceName));
+		criteria.setCacheable(queryCacheEnabled);
 		
 		return criteria;
 	}
@@ -364,35 +958,55 @@ public class HibernateMetadataMappingDAO implements MetadataMappingDAO {
 			throw new IllegalArgumentException("To obtain MetadataSet items, reference to MetadataSet must be given");
 		}
 		
-		Criteria memberCriteria = sessionFactory.getCurrentSession().createCriteria(MetadataSetMember.class, "member");
-		memberCriteria.add(Restrictions.eq("member.retired", false));
-		memberCriteria.add(Restrictions.eq("member.metadataSet", metadataSet));
-		
 		DetachedCriteria metadataItemSubQuery = DetachedCriteria.forClass(type, "item");
 		metadataItemSubQuery.add(Restrictions.eqProperty("item.uuid", "member.metadataUuid"));
 		metadataItemSubQuery.add(Restrictions.eq("item.retired", false));
 		metadataItemSubQuery.setProjection(Projections.property("item.uuid"));
 		
-		memberCriteria.add(Subqueries.propertyIn("member.metadataUuid", metadataItemSubQuery));
-		
-		memberCriteria.setProjection(Projections.property("member.metadataUuid"));
-		if (firstResult != null) {
-			memberCriteria.setFirstResult(firstResult);
-		}
-		if (maxResults != null) {
-			memberCriteria.setMaxResults(maxResults);
-		}
-		memberCriteria.addOrder(Order.desc("member.sortWeight"));
-		
-		List<String> itemUuids = memberCriteria.list();
+		List<String> itemUuids = listInSortWeightOrder(new Supplier<Criteria>() {
+			
+			@Override
+			public Criteria get() {
+				Criteria memberCriteria = sessionFactory.getCurrentSession().createCriteria(MetadataSetMember.class,
+				    "member");
+				memberCriteria.add(Restrictions.eq("member.retired", false));
+				memberCriteria.add(Restrictions.eq("member.metadataSet", metadataSet));
+				memberCriteria.add(Subqueries.propertyIn("member.metadataUuid", metadataItemSubQuery));
+				memberCriteria.setProjection(Projections.property("member.metadataUuid"));
+				return memberCriteria;
+			}
+		}, firstResult, maxResults);
 		
-		List<T> items = new LinkedList<T>();
+		Map<String, T> itemsByUuid = internalGetByUuids(type, itemUuids);
+		List<T> items = new ArrayList<T>(itemUuids.size());
 		for (String itemUuid : itemUuids) {
-			T item = getByUuid(type, itemUuid);
+			T item = itemsByUuid.get(itemUuid);
 			if (item != null) {
 				items.add(item);
 			}
 		}
 		return items;
 	}
+	
+	/**
+	 * Loads objects with {@code uuid IN (...)} queries, splitting the uuids into chunks of {@link #MAX_IN_PARAMETERS}.
+	 * <p>
+	 * Package-private for tests.
+	 * @return objects by uuid, uuids of not existing objects are not included
+	 */
+	@SuppressWarnings(value = "unchecked")
+	<T extends OpenmrsObject> Map<String, T> internalGetByUuids(Class<T> openmrsObjectClass,
+	        Collection<String> uuids) {
+		Map<String, T> objectsByUuid = new HashMap<String, T>();
+		List<String> uniqueUuids = new ArrayList<String>(new LinkedHashSet<String>(uuids));
+		for (int i = 0; i < uniqueUuids.size(); i += MAX_IN_PARAMETERS) {
+			List<String> chunk = uniqueUuids.subList(i, Math.min(i + MAX_IN_PARAMETERS, uniqueUuids.size()));
+			Criteria criteria = getCurrentSession().createCriteria(openmrsObjectClass);
+			criteria.add(Restrictions.in("uuid", chunk));
+			for (T object : (List<T>) criteria.list()) {
+				objectsByUuid.put(object.getUuid(), object);
+			}
+		}
+		return objectsByUuid;
+	}
 }
@@ -15,10 +15,15 @@ package org.openmrs.module.metadatamapping.api.db.hibernate.interceptor;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hibernate.EmptyInterceptor;
-import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
 import org.hibernate.type.Type;
 import org.openmrs.Concept;
 import org.openmrs.api.context.Context;
@@ -30,14 +35,32 @@ import org.springframework.stereotype.Component;
 
 /**
  * Retires/unretires/purges local mappings with concepts.
+ * <p>
+ * Concepts are only recorded while the session is being flushed and only if their retired state changed. Their local
+ * mappings are updated in batches before the transaction of the session commits, and the changes are flushed then.
+ * Recorded concepts are dropped if the transaction is rolled back.
  */
 @Component("metadatamapping.LocalMappingHibernateInterceptor")
 public class LocalMappingHibernateInterceptor extends EmptyInterceptor implements ApplicationContextAware {
 	
 	private static final long serialVersionUID = 1L;
 	
+	/**
+	 * Recorded concepts by session, since a transaction may be suspended for a new one in the same thread.
+	 */
+	private static final ThreadLocal<Map<Session, PendingConcepts>> pendingConcepts =
+	        new ThreadLocal<Map<Session, PendingConcepts>>();
+	
+	private static final String RETIRED_PROPERTY = "retired";
+	
+	private final AtomicLong skippedConceptUpdates = new AtomicLong();
+	
+	private final AtomicLong recordedConceptUpdates = new AtomicLong();
+	
 	private ApplicationContext applicationContext;
 	
+	private transient volatile SessionFactory sessionFactory;
+	
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		this.applicationContext = applicationContext;
@@ -53,16 +76,7 @@ public class LocalMappingHibernateInterceptor extends EmptyInterceptor implement
 			return;
 		}
 		
-		Concept concept = (Concept) entity;
-		
-		MetadataMappingService service = Context.getService(MetadataMappingService.class);
-		
-		FlushMode flushMode = setFlushMode(FlushMode.MANUAL);
-		if (service.isLocalConceptSourceConfigured()) {
-			service.markLocalMappingRetiredInConcept(concept);
-		}
-		setFlushMode(flushMode);
-		
+		getPendingConcepts().delete((Concept) entity);
 	}
 	
 	@Override
@@ -72,31 +86,116 @@ public class LocalMappingHibernateInterceptor extends EmptyInterceptor implement
 			return false;
 		}
 		
-		Concept concept = (Concept) entity;
-		
-		MetadataMappingService service = Context.getService(MetadataMappingService.class);
+		if (!isRetiredChanged(currentState, previousState, propertyNames)) {
+			skippedConceptUpdates.incrementAndGet();
+			return false;
+		}
+		recordedConceptUpdates.incrementAndGet();
 		
-		FlushMode flushMode = setFlushMode(FlushMode.MANUAL);
-		if (service.isLocalConceptSourceConfigured()) {
-			if (concept.isRetired()) {
-				service.markLocalMappingRetiredInConcept(concept);
-			} else {
-				service.markLocalMappingUnretiredInConcept(concept);
-			}
+		Concept concept = (Concept) entity;
+		if (concept.isRetired()) {
+			getPendingConcepts().retire(concept);
+		} else {
+			getPendingConcepts().unretire(concept);
 		}
-		setFlushMode(flushMode);
 		
 		return false;
 	}
 	
-	private FlushMode setFlushMode(FlushMode flushMode) {
-		//We need to get sessionFactory lazily here, because when the interceptor is instantiated Hibenate is not yet ready to work.
-		FlushMode previousFlushMode = null;
-		org.hibernate.Session session = getCurrentSession();
-		previousFlushMode = session.getHibernateFlushMode();
-
-		session.setFlushMode(flushMode);
-		return previousFlushMode;
+	/**
+	 * Updates local mappings of the concepts recorded during flushes of the session and flushes the changes. It runs
+	 * after the last flush of the transaction, thus not from within a flush.
+	 * 
+	 * @see org.hibernate.EmptyInterceptor#beforeTransactionCompletion(org.hibernate.Transaction)
+	 */
+	@Override
+	public void beforeTransactionCompletion(Transaction tx) {
+		PendingConcepts pending = removePendingConcepts();
+		// Updating terms does not change concepts, but anything recorded by the flush below is processed as well
+		while (pending != null && !pending.isEmpty()) {
+			MetadataMappingService service = Context.getService(MetadataMappingService.class);
+			if (service.isLocalConceptSourceConfigured()) {
+				service.markLocalMappingsRetiredInConcepts(pending.toRetire.values());
+				service.markLocalMappingsUnretiredInConcepts(pending.toUnretire.values());
+				// Mappings of deleted concepts are no longer in the database, but in the deleted objects
+				for (Concept concept : pending.deleted.values()) {
+					service.markLocalMappingRetiredInConcept(concept);
+				}
+				getCurrentSession().flush();
+			}
+			pending = removePendingConcepts();
+		}
+	}
+	
+	/**
+	 * Drops concepts recorded in the session, if the transaction was rolled back.
+	 * 
+	 * @see org.hibernate.EmptyInterceptor#afterTransactionCompletion(org.hibernate.Transaction)
+	 */
+	@Override
+	public void afterTransactionCompletion(Transaction tx) {
+		removePendingConcepts();
+	}
+	
+	/**
+	 * @return the number of flushed concept updates, which did not change the retired state and were skipped
+	 * @since 2.1.0
+	 */
+	public long getSkippedConceptUpdates() {
+		return skippedConceptUpdates.get();
+	}
+	
+	/**
+	 * @return the number of flushed concept updates, which changed the retired state and were recorded
+	 * @since 2.1.0
+	 */
+	public long getRecordedConceptUpdates() {
+		return recordedConceptUpdates.get();
+	}
+	
+	/**
+	 * The previous state is not known for detached objects, in which case the state is assumed to have changed.
+	 */
+	private boolean isRetiredChanged(Object[] currentState, Object[] previousState, String[] propertyNames) {
+		if (previousState == null) {
+			return true;
+		}
+		for (int i = 0; i < propertyNames.length; i++) {
+			if (RETIRED_PROPERTY.equals(propertyNames[i])) {
+				return Boolean.TRUE.equals(currentState[i]) != Boolean.TRUE.equals(previousState[i]);
+			}
+		}
+		return true;
+	}
+	
+	private PendingConcepts getPendingConcepts() {
+		Map<Session, PendingConcepts> pendingBySession = pendingConcepts.get();
+		if (pendingBySession == null) {
+			pendingBySession = new IdentityHashMap<Session, PendingConcepts>();
+			pendingConcepts.set(pendingBySession);
+		}
+		Session session = getCurrentSession();
+		PendingConcepts pending = pendingBySession.get(session);
+		if (pending == null) {
+			pending = new PendingConcepts();
+			pendingBySession.put(session, pending);
+		}
+		return pending;
+	}
+	
+	/**
+	 * @return concepts recorded in the current session or null
+	 */
+	private PendingConcepts removePendingConcepts() {
+		Map<Session, PendingConcepts> pendingBySession = pendingConcepts.get();
+		if (pendingBySession == null) {
+			return null;
+		}
+		PendingConcepts pending = pendingBySession.remove(getCurrentSession());
+		if (pendingBySession.isEmpty()) {
+			pendingConcepts.remove();
+		}
+		return pending;
 	}
 	
 	/**
@@ -105,7 +204,10 @@ public class LocalMappingHibernateInterceptor extends EmptyInterceptor implement
 	 * @return the current hibernate session.
 	 */
 	private org.hibernate.Session getCurrentSession() {
-		SessionFactory sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
+		//We need to get sessionFactory lazily here, because when the interceptor is instantiated Hibenate is not yet ready to work.
+		if (sessionFactory == null) {
+			sessionFactory = (SessionFactory) applicationContext.getBean("sessionFactory");
+		}
 		try {
 			return sessionFactory.getCurrentSession();
 		}
@@ -119,4 +221,42 @@ public class LocalMappingHibernateInterceptor extends EmptyInterceptor implement
 			}
 		}
 	}
+	
+	/**
+	 * Concepts by id, for which local mappings need to be retired or unretired. The last recorded state wins.
+	 */
+	private static class PendingConcepts {
+		
+		private final Map<Integer, Concept> toRetire = new LinkedHashMap<Integer, Concept>();
+		
+		private final Map<Integer, Concept> toUnretire = new LinkedHashMap<Integer, Concept>();
+		
+		private final Map<Integer, Concept> deleted = new LinkedHashMap<Integer, Concept>();
+		
+		void retire(Concept concept) {
+			if (concept.getId() != null) {
+				toUnretire.remove(concept.getId());
+				toRetire.put(concept.getId(), concept);
+			}
+		}
+		
+		void unretire(Concept concept) {
+			if (concept.getId() != null) {
+				toRetire.remove(concept.getId());
+				toUnretire.put(concept.getId(), concept);
+			}
+		}
+		
+		void delete(Concept concept) {
+			if (concept.getId() != null) {
+				toRetire.remove(concept.getId());
+				toUnretire.remove(concept.getId());
+				deleted.put(concept.getId(), concept);
+			}
+		}
+		
+		boolean isEmpty() {
+			return toRetire.isEmpty() && toUnretire.isEmpty() && deleted.isEmpty();
+		}
+	}
 }
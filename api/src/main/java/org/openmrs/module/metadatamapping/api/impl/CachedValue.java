@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.impl;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds a single memoized value derived from the database, e.g. from a global property.
+ * <p>
+ * Invalidation is repeated when the current transaction completes, so that a value read from uncommitted or rolled
+ * back data does not survive the transaction. A value is only stored, if the cache was not invalidated since its
+ * version was read before loading the value, so that a concurrent reader cannot store a value loaded before the
+ * invalidation.
+ * <p>
+ * Invalidation is local to the server. Servers sharing a database see changes made on another server only after a
+ * restart, as for other global properties held in memory.
+ * @param <T> type of the value
+ * @since 2.1.0
+ */
+public class CachedValue<T> {
+	
+	private final AtomicLong version = new AtomicLong();
+	
+	private volatile T value;
+	
+	/**
+	 * @return the cached value or null, if not cached
+	 */
+	public T get() {
+		return value;
+	}
+	
+	/**
+	 * @return version to pass to {@link #set(Object, long)}, must be read before the value is loaded
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+	
+	/**
+	 * @param value value to cache
+	 * @param version version read before the value was loaded, the value is not cached if it was invalidated since
+	 */
+	public synchronized void set(T value, long version) {
+		if (this.version.get() == version) {
+			this.value = value;
+		}
+	}
+	
+	/**
+	 * Removes the value now and once again when the current transaction completes.
+	 */
+	public void invalidate() {
+		clear();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+		        && !TransactionSynchronizationManager.hasResource(this)) {
+			TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(CachedValue.this);
+					clear();
+				}
+			});
+		}
+	}
+	
+	private synchronized void clear() {
+		version.incrementAndGet();
+		value = null;
+	}
+}
@@ -0,0 +1,288 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.metadatamapping.MetadataMapping;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus.State;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adds local mappings to all concepts in a daemon thread.
+ * <p>
+ * Each batch is committed together with the id of its last concept, which is stored in the
+ * {@link MetadataMapping#GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID} global property. A paused or failed job can be resumed
+ * from that checkpoint, also after a restart.
+ * <p>
+ * If the job is started within a transaction, the daemon thread is started after the transaction commits, so that it
+ * sees the changes of the caller. If the transaction rolls back, the job returns to its previous state.
+ * @since 2.1.0
+ */
+public class LocalMappingJob {
+	
+	private static final Log log = LogFactory.getLog(LocalMappingJob.class);
+	
+	private static volatile DaemonToken daemonToken;
+	
+	private volatile boolean pauseRequested;
+	
+	private State state = State.IDLE;
+	
+	private long processedConcepts;
+	
+	private long totalConcepts;
+	
+	private Integer lastConceptId;
+	
+	private long processedConceptsInRun;
+	
+	private long runStartTime;
+	
+	private long runEndTime;
+	
+	private String errorMessage;
+	
+	/**
+	 * Set by the module activator.
+	 * @param daemonToken token used to run the job in a daemon thread
+	 */
+	public static void setDaemonToken(DaemonToken daemonToken) {
+		LocalMappingJob.daemonToken = daemonToken;
+	}
+	
+	/**
+	 * @param adminService service to read the global property with
+	 * @return id of the last concept processed by the job or null, if not set
+	 */
+	public static Integer getCheckpoint(AdministrationService adminService) {
+		String lastConceptId = adminService.getGlobalProperty(MetadataMapping.GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID, "");
+		return StringUtils.isBlank(lastConceptId) ? null : Integer.valueOf(lastConceptId.trim());
+	}
+	
+	/**
+	 * @param adminService service to save the global property with
+	 * @param lastConceptId id of the last concept processed by the job, null to clear
+	 */
+	public static void saveCheckpoint(AdministrationService adminService, Integer lastConceptId) {
+		GlobalProperty checkpoint = adminService
+		        .getGlobalPropertyObject(MetadataMapping.GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID);
+		if (checkpoint == null) {
+			checkpoint = new GlobalProperty(MetadataMapping.GP_LOCAL_MAPPING_JOB_LAST_CONCEPT_ID, "");
+		}
+		checkpoint.setPropertyValue(lastConceptId == null ? "" : lastConceptId.toString());
+		adminService.saveGlobalProperty(checkpoint);
+	}
+	
+	/**
+	 * Starts processing concepts with ids greater than the given one in a daemon thread.
+	 * <p>
+	 * The thread is started after the current transaction commits, if there is one.
+	 * @param transactionManager used to commit each batch
+	 * @param dao used to count the processed concepts
+	 * @param afterConceptId id of the last processed concept, null to start from the beginning
+	 * @param processedConcepts number of concepts processed before
+	 * @param totalConcepts number of all concepts
+	 * @param batchSize number of concepts processed in a transaction
+	 * @throws APIException if the job is already running or the module has not been started
+	 */
+	public synchronized void start(final PlatformTransactionManager transactionManager, final MetadataMappingDAO dao,
+	        Integer afterConceptId, long processedConcepts, long totalConcepts, final int batchSize) {
+		if (daemonToken == null) {
+			throw new APIException("The local mapping job cannot be run before the module is started");
+		}
+		
+		final LocalMappingJob previousRun = copyRun();
+		begin(afterConceptId, processedConcepts, totalConcepts);
+		
+		final Runnable execution = new Runnable() {
+			
+			@Override
+			public void run() {
+				execute(transactionManager, dao, batchSize);
+			}
+		};
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			Daemon.runInDaemonThread(execution, daemonToken);
+			return;
+		}
+		
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			
+			@Override
+			public void afterCommit() {
+				try {
+					Daemon.runInDaemonThread(execution, daemonToken);
+				}
+				catch (RuntimeException e) {
+					log.error("Starting the local mapping job failed", e);
+					finish(State.FAILED, e.getMessage());
+				}
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED) {
+					restoreRun(previousRun);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Processes concepts in the calling thread until the job completes, is paused or fails.
+	 * <p>
+	 * Used in tests, which cannot run daemon threads.
+	 * @see #start(PlatformTransactionManager, MetadataMappingDAO, Integer, long, long, int)
+	 */
+	void run(PlatformTransactionManager transactionManager, MetadataMappingDAO dao, Integer afterConceptId,
+	        long processedConcepts, long totalConcepts, int batchSize) {
+		begin(afterConceptId, processedConcepts, totalConcepts);
+		execute(transactionManager, dao, batchSize);
+	}
+	
+	/**
+	 * Requests the job to stop after the current batch.
+	 */
+	public void pause() {
+		pauseRequested = true;
+	}
+	
+	public synchronized LocalMappingJobStatus getStatus() {
+		long elapsedTime = (state == State.RUNNING ? System.currentTimeMillis() : runEndTime) - runStartTime;
+		double conceptsPerSecond = elapsedTime > 0 ? processedConceptsInRun * 1000.0 / elapsedTime : 0;
+		return new LocalMappingJobStatus(state, processedConcepts, totalConcepts, lastConceptId, conceptsPerSecond,
+		        errorMessage);
+	}
+	
+	private synchronized void begin(Integer afterConceptId, long processedConcepts, long totalConcepts) {
+		if (state == State.RUNNING) {
+			throw new APIException("The local mapping job is already running");
+		}
+		
+		this.lastConceptId = afterConceptId;
+		this.processedConcepts = processedConcepts;
+		this.totalConcepts = totalConcepts;
+		this.processedConceptsInRun = 0;
+		this.runStartTime = System.currentTimeMillis();
+		this.errorMessage = null;
+		this.pauseRequested = false;
+		this.state = State.RUNNING;
+	}
+	
+	private synchronized LocalMappingJob copyRun() {
+		LocalMappingJob run = new LocalMappingJob();
+		run.state = state;
+		run.processedConcepts = processedConcepts;
+		run.totalConcepts = totalConcepts;
+		run.lastConceptId = lastConceptId;
+		run.processedConceptsInRun = processedConceptsInRun;
+		run.runStartTime = runStartTime;
+		run.runEndTime = runEndTime;
+		run.errorMessage = errorMessage;
+		return run;
+	}
+	
+	/**
+	 * Returns to the state before a start, which was rolled back together with the checkpoint.
+	 */
+	private synchronized void restoreRun(LocalMappingJob run) {
+		state = run.state;
+		processedConcepts = run.processedConcepts;
+		totalConcepts = run.totalConcepts;
+		lastConceptId = run.lastConceptId;
+		processedConceptsInRun = run.processedConceptsInRun;
+		runStartTime = run.runStartTime;
+		runEndTime = run.runEndTime;
+		errorMessage = run.errorMessage;
+	}
+	
+	private void execute(PlatformTransactionManager transactionManager, final MetadataMappingDAO dao,
+	        final int batchSize) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		try {
+			while (!pauseRequested) {
+				final Integer afterConceptId = getLastConceptId();
+				final long[] batchConcepts = new long[1];
+				Integer batchLastConceptId = transactionTemplate.execute(new TransactionCallback<Integer>() {
+					
+					@Override
+					public Integer doInTransaction(TransactionStatus status) {
+						Integer lastConceptId = Context.getService(MetadataMappingService.class).addLocalMappingToConcepts(
+						    afterConceptId, batchSize);
+						if (lastConceptId != null) {
+							saveCheckpoint(Context.getAdministrationService(), lastConceptId);
+							batchConcepts[0] = dao.getConceptCount(afterConceptId) - dao.getConceptCount(lastConceptId);
+						}
+						return lastConceptId;
+					}
+				});
+				
+				if (batchLastConceptId == null) {
+					finish(State.COMPLETED, null);
+					return;
+				}
+				batchProcessed(batchLastConceptId, batchConcepts[0]);
+			}
+			finish(State.PAUSED, null);
+		}
+		catch (RuntimeException e) {
+			log.error("Adding local mappings to concepts failed after concept " + getLastConceptId(), e);
+			finish(State.FAILED, e.getMessage());
+		}
+	}
+	
+	private synchronized Integer getLastConceptId() {
+		return lastConceptId;
+	}
+	
+	/**
+	 * @param batchLastConceptId id of the last concept of the batch
+	 * @param batchConcepts number of concepts in the batch, counted in its transaction
+	 */
+	synchronized void batchProcessed(Integer batchLastConceptId, long batchConcepts) {
+		lastConceptId = batchLastConceptId;
+		processedConceptsInRun += batchConcepts;
+		processedConcepts = Math.min(processedConcepts + batchConcepts, totalConcepts);
+		if (log.isInfoEnabled()) {
+			log.info("Local mapping job processed " + processedConcepts + " of " + totalConcepts
+			        + " concepts (last concept id: " + lastConceptId + ")");
+		}
+	}
+	
+	private synchronized void finish(State finalState, String errorMessage) {
+		if (finalState == State.COMPLETED) {
+			processedConceptsInRun += totalConcepts - processedConcepts;
+			processedConcepts = totalConcepts;
+		}
+		this.state = finalState;
+		this.errorMessage = errorMessage;
+		this.runEndTime = System.currentTimeMillis();
+	}
+}
@@ -14,6 +14,7 @@
 package org.openmrs.module.metadatamapping.api.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Concept;
@@ -22,10 +23,11 @@ import org.openmrs.ConceptSource;
 import org.openmrs.GlobalProperty;
 import org.openmrs.ImplementationId;
 import org.openmrs.OpenmrsMetadata;
-import org.openmrs.OpenmrsObject;
+import org.openmrs.User;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.metadatamapping.MetadataMapping;
@@ -34,27 +36,53 @@ import org.openmrs.module.metadatamapping.MetadataSetMember;
 import org.openmrs.module.metadatamapping.MetadataSource;
 import org.openmrs.module.metadatamapping.MetadataTermMapping;
 import org.openmrs.module.metadatamapping.RetiredHandlingMode;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus;
+import org.openmrs.module.metadatamapping.api.LocalMappingProgressListener;
 import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.MetadataSetReconciliationResult;
 import org.openmrs.module.metadatamapping.api.MetadataSetSearchCriteria;
 import org.openmrs.module.metadatamapping.api.MetadataSourceSearchCriteria;
 import org.openmrs.module.metadatamapping.api.MetadataSourceSearchCriteriaBuilder;
+import org.openmrs.module.metadatamapping.api.MetadataSourceSnapshot;
 import org.openmrs.module.metadatamapping.api.MetadataTermMappingSearchCriteria;
 import org.openmrs.module.metadatamapping.api.MetadataTermMappingSearchCriteriaBuilder;
 import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingFormat;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImportResult;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImporter;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingReader;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingRow;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingWriter;
 import org.openmrs.module.metadatamapping.api.wrapper.ConceptAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * The service implementation.
  */
-public class MetadataMappingServiceImpl extends BaseOpenmrsService implements MetadataMappingService {
+public class MetadataMappingServiceImpl extends BaseOpenmrsService implements MetadataMappingService, GlobalPropertyListener {
 	
 	protected final Log log = LogFactory.getLog(getClass());
 	
@@ -66,8 +94,16 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	
 	private ConceptAdapter conceptAdapter;
 	
+	private PlatformTransactionManager transactionManager;
+	
 	private int batchSize = 1000;
 	
+	private final LocalMappingJob localMappingJob = new LocalMappingJob();
+	
+	private final CachedValue<Integer> localConceptSourceId = new CachedValue<Integer>();
+	
+	private final CachedValue<Set<Integer>> subscribedConceptSourceIds = new CachedValue<Set<Integer>>();
+	
 	public void setBatchSize(int batchSize) {
 		this.batchSize = batchSize;
 	}
@@ -88,6 +124,10 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		this.dao = dao;
 	}
 	
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionManager = transactionManager;
+	}
+	
 	@Override
 	@Transactional
 	public ConceptSource createLocalConceptSourceFromImplementationId() {
@@ -111,6 +151,15 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	@Override
 	@Transactional(readOnly = true)
 	public ConceptSource getLocalConceptSource() {
+		final Integer cachedSourceId = localConceptSourceId.get();
+		if (cachedSourceId != null) {
+			final ConceptSource source = conceptService.getConceptSource(cachedSourceId);
+			if (source != null) {
+				return source;
+			}
+		}
+		
+		final long cacheVersion = localConceptSourceId.getVersion();
 		final String sourceUuid = adminService.getGlobalProperty(MetadataMapping.GP_LOCAL_SOURCE_UUID, "");
 		
 		if (StringUtils.isEmpty(sourceUuid)) {
@@ -125,6 +174,7 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 				        + " global property does not exist. Set the global property to " + "an existing concept source.");
 			}
 			
+			localConceptSourceId.set(source.getConceptSourceId(), cacheVersion);
 			return source;
 		}
 	}
@@ -185,6 +235,24 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		conceptAdapter.unretireMapping(concept, localConceptSource, concept.getId().toString());
 	}
 	
+	@Override
+	@Transactional
+	public int markLocalMappingsRetiredInConcepts(Collection<Concept> concepts) {
+		if (concepts.isEmpty()) {
+			return 0;
+		}
+		return conceptAdapter.retireMappings(concepts, getLocalConceptSource());
+	}
+	
+	@Override
+	@Transactional
+	public int markLocalMappingsUnretiredInConcepts(Collection<Concept> concepts) {
+		if (concepts.isEmpty()) {
+			return 0;
+		}
+		return conceptAdapter.unretireMappings(concepts, getLocalConceptSource());
+	}
+	
 	@Override
 	@Transactional
 	public void purgeLocalMappingInConcept(final Concept concept) {
@@ -199,25 +267,151 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	@Override
 	@Transactional
 	public void addLocalMappingToAllConcepts() {
-		int position = 0;
-		List<Concept> concepts = dao.getConcepts(position, batchSize);
-		while (true) {
-			for (Concept concept : concepts) {
-				addLocalMappingToConcept(concept);
-				if (concept.isRetired()) {
-					markLocalMappingRetiredInConcept(concept);
+		internalAddLocalMappingToAllConcepts(batchSize, null, null);
+	}
+	
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public void addLocalMappingToAllConcepts(final int batchSize, boolean commitEachBatch,
+	        LocalMappingProgressListener listener) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		if (commitEachBatch) {
+			transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			internalAddLocalMappingToAllConcepts(batchSize, transactionTemplate, listener);
+		} else {
+			final LocalMappingProgressListener progressListener = listener;
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					internalAddLocalMappingToAllConcepts(batchSize, null, progressListener);
 				}
+			});
+		}
+	}
+	
+	@Override
+	@Transactional
+	public Integer addLocalMappingToConcepts(Integer afterConceptId, int maxResults) {
+		List<Integer> conceptIds = internalAddLocalMappingToConcepts(afterConceptId, maxResults);
+		return conceptIds.isEmpty() ? null : conceptIds.get(conceptIds.size() - 1);
+	}
+	
+	@Override
+	@Transactional
+	public LocalMappingJobStatus startLocalMappingJob() {
+		getLocalConceptSource();
+		localMappingJob.start(transactionManager, dao, null, 0, dao.getConceptCount(null), batchSize);
+		LocalMappingJob.saveCheckpoint(adminService, null);
+		return localMappingJob.getStatus();
+	}
+	
+	@Override
+	@Transactional
+	public LocalMappingJobStatus resumeLocalMappingJob() {
+		getLocalConceptSource();
+		Integer afterConceptId = LocalMappingJob.getCheckpoint(adminService);
+		long totalConcepts = dao.getConceptCount(null);
+		long processedConcepts = totalConcepts - dao.getConceptCount(afterConceptId);
+		localMappingJob.start(transactionManager, dao, afterConceptId, processedConcepts, totalConcepts, batchSize);
+		return localMappingJob.getStatus();
+	}
+	
+	@Override
+	public LocalMappingJobStatus pauseLocalMappingJob() {
+		localMappingJob.pause();
+		return localMappingJob.getStatus();
+	}
+	
+	@Override
+	public LocalMappingJobStatus getLocalMappingJobStatus() {
+		return localMappingJob.getStatus();
+	}
+	
+	/**
+	 * Processes all concepts in batches using the concept id as a key.
+	 * @param batchTransactionTemplate runs each batch if not null, otherwise batches run in the current transaction
+	 */
+	private void internalAddLocalMappingToAllConcepts(final int batchSize, TransactionTemplate batchTransactionTemplate,
+	        LocalMappingProgressListener listener) {
+		long startTime = System.currentTimeMillis();
+		int processedConcepts = 0;
+		Integer lastConceptId = null;
+		while (true) {
+			final Integer afterConceptId = lastConceptId;
+			List<Integer> conceptIds;
+			if (batchTransactionTemplate != null) {
+				conceptIds = batchTransactionTemplate.execute(new TransactionCallback<List<Integer>>() {
+					
+					@Override
+					public List<Integer> doInTransaction(TransactionStatus status) {
+						return internalAddLocalMappingToConcepts(afterConceptId, batchSize);
+					}
+				});
+			} else {
+				conceptIds = internalAddLocalMappingToConcepts(afterConceptId, batchSize);
 			}
 			
-			if (concepts.size() == batchSize) {
-				position += batchSize;
-				concepts = dao.getConcepts(position, batchSize);
-			} else {
+			if (conceptIds.isEmpty()) {
+				break;
+			}
+			
+			processedConcepts += conceptIds.size();
+			lastConceptId = conceptIds.get(conceptIds.size() - 1);
+			if (log.isInfoEnabled()) {
+				log.info("Added local mappings to " + processedConcepts + " concepts (last concept id: " + lastConceptId
+				        + ") in " + (System.currentTimeMillis() - startTime) + " ms");
+			}
+			if (listener != null) {
+				listener.batchProcessed(processedConcepts, lastConceptId);
+			}
+			
+			if (conceptIds.size() < batchSize) {
 				break;
 			}
 		}
 	}
 	
+	/**
+	 * @return ids of processed concepts in ascending order
+	 */
+	private List<Integer> internalAddLocalMappingToConcepts(Integer afterConceptId, int maxResults) {
+		List<Concept> concepts = dao.getConceptsAfter(afterConceptId, maxResults);
+		if (concepts.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		final ConceptSource localConceptSource = getLocalConceptSource();
+		List<Integer> conceptIds = new ArrayList<Integer>(concepts.size());
+		List<Concept> unmappedConcepts = new ArrayList<Concept>();
+		for (Concept concept : concepts) {
+			if (!conceptAdapter.hasMappingToSource(concept, localConceptSource)) {
+				unmappedConcepts.add(concept);
+			}
+			conceptIds.add(concept.getConceptId());
+		}
+		conceptAdapter.addMappings(unmappedConcepts, localConceptSource);
+		
+		List<Concept> retiredConcepts = new ArrayList<Concept>();
+		for (Concept concept : concepts) {
+			if (concept.isRetired()) {
+				retiredConcepts.add(concept);
+			}
+		}
+		markLocalMappingsRetiredInConcepts(retiredConcepts);
+		
+		// Only objects of the batch are evicted, so that objects held by the caller stay in the session
+		List<Object> batchObjects = new ArrayList<Object>(concepts);
+		for (Concept concept : concepts) {
+			for (ConceptMap conceptMap : concept.getConceptMappings()) {
+				batchObjects.add(conceptMap.getConceptReferenceTerm());
+			}
+		}
+		dao.flushAndEvict(batchObjects);
+		
+		return conceptIds;
+	}
+	
 	@Override
 	@Transactional(readOnly = true)
 	public Set<ConceptSource> getSubscribedConceptSources() {
@@ -285,11 +479,12 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	
 	@Override
 	public boolean isLocalConcept(final Concept concept) {
-		final Set<ConceptSource> subscribedConceptSources = getSubscribedConceptSources();
+		final Set<Integer> subscribedConceptSourceIds = getSubscribedConceptSourceIds();
 		
 		if (concept.getConceptMappings() != null) {
 			for (ConceptMap map : concept.getConceptMappings()) {
-				if (subscribedConceptSources.contains(map.getConceptReferenceTerm().getConceptSource())) {
+				ConceptSource source = map.getConceptReferenceTerm().getConceptSource();
+				if (source != null && subscribedConceptSourceIds.contains(source.getConceptSourceId())) {
 					return false;
 				}
 			}
@@ -298,6 +493,23 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		return true;
 	}
 	
+	/**
+	 * @return ids of subscribed concept sources, cached until the global property changes
+	 */
+	private Set<Integer> getSubscribedConceptSourceIds() {
+		Set<Integer> sourceIds = subscribedConceptSourceIds.get();
+		if (sourceIds == null) {
+			long cacheVersion = subscribedConceptSourceIds.getVersion();
+			sourceIds = new HashSet<Integer>();
+			for (ConceptSource source : getSubscribedConceptSources()) {
+				sourceIds.add(source.getConceptSourceId());
+			}
+			sourceIds = Collections.unmodifiableSet(sourceIds);
+			subscribedConceptSourceIds.set(sourceIds, cacheVersion);
+		}
+		return sourceIds;
+	}
+	
 	@Override
 	public Concept getConcept(final String mapping) {
 		if (StringUtils.isBlank(mapping)) {
@@ -339,6 +551,7 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	
 	@Override
 	public void setLocalConceptSource(ConceptSource conceptSource) {
+		localConceptSourceId.invalidate();
 		adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_LOCAL_SOURCE_UUID, conceptSource.getUuid()));
 	}
 	
@@ -426,6 +639,13 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	@Transactional
 	public <T extends OpenmrsMetadata> MetadataTermMapping mapMetadataItems(List<T> referredObjects, String sourceName,
 	        String mappingCode) {
+		return reconcileMetadataItems(referredObjects, sourceName, mappingCode).getMetadataTermMapping();
+	}
+	
+	@Override
+	@Transactional
+	public <T extends OpenmrsMetadata> MetadataSetReconciliationResult reconcileMetadataItems(List<T> referredObjects,
+	        String sourceName, String mappingCode) {
 		
 		if (referredObjects == null || referredObjects.size() == 0) {
 			throw new IllegalArgumentException("List of objects to map null or empty");
@@ -438,6 +658,19 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 			throw new IllegalArgumentException("No source with name " + sourceName);
 		}
 		
+		// duplicates are mapped once, the first occurrence wins
+		Map<String, T> referredObjectsByUuid = new LinkedHashMap<String, T>();
+		for (T referredObject : referredObjects) {
+			if (!referredObjectsByUuid.containsKey(referredObject.getUuid())) {
+				referredObjectsByUuid.put(referredObject.getUuid(), referredObject);
+			}
+		}
+		
+		List<String> added = new ArrayList<String>();
+		List<String> retired = new ArrayList<String>();
+		List<String> unchanged = new ArrayList<String>();
+		List<MetadataSetMember> changedMembers = new ArrayList<MetadataSetMember>();
+		
 		MetadataTermMapping mapping = getMetadataTermMapping(source, mappingCode);
 		
 		// create new set
@@ -446,72 +679,66 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 			MetadataSet set = new MetadataSet();
 			service.saveMetadataSet(set);
 			
-			for (OpenmrsMetadata obj : referredObjects) {
-				service.saveMetadataSetMember(new MetadataSetMember(obj, set));
+			for (T referredObject : referredObjectsByUuid.values()) {
+				changedMembers.add(new MetadataSetMember(referredObject, set));
+				added.add(referredObject.getUuid());
 			}
+			service.saveMetadataSetMembers(changedMembers);
 			
 			mapping = new MetadataTermMapping();
 			mapping.setMetadataSource(source);
 			mapping.setCode(mappingCode);
 			mapping.setMappedObject(set);
 			service.saveMetadataTermMapping(mapping);
-			return mapping;
-		}
-		// find and modify existing set
-		else {
-			MetadataSet existingSet = getMetadataItem(MetadataSet.class, sourceName, mappingCode);
-			List<MetadataSetMember> existingSetMembers = getMetadataSetMembers(existingSet, RetiredHandlingMode.ONLY_ACTIVE);
-			
-			List<String> existingSetMemberUuids = mapToMemberUuids(existingSetMembers);
-			List<String> newSetMemberUuids = mapToUuids(referredObjects);
-			
-			// remove any items that are no longer there
-			for (MetadataSetMember member : existingSetMembers) {
-				if (!newSetMemberUuids.contains(member.getMetadataUuid())) {
-					service.retireMetadataSetMember(member, "removed from set");
-				}
-			}
-			
-			// add any missing items
-			for (OpenmrsMetadata obj : referredObjects) {
-				if (!existingSetMemberUuids.contains(obj.getUuid())) {
-					service.saveMetadataSetMember(new MetadataSetMember(obj, existingSet));
-				}
-			}
-			
+			return new MetadataSetReconciliationResult(mapping, added, retired, unchanged);
 		}
 		
-		return mapping;
-	}
-	
-	private List<String> mapToMemberUuids(List<MetadataSetMember> members) {
+		// find and modify existing set
+		MetadataSet existingSet = getMetadataItem(MetadataSet.class, sourceName, mappingCode);
 		
-		List<String> memberUuids = new ArrayList<String>();
+		// retired members are included, since a member may exist only once per item in a set
+		Map<String, MetadataSetMember> existingMembersByUuid = new LinkedHashMap<String, MetadataSetMember>();
+		for (MetadataSetMember member : getMetadataSetMembers(existingSet, RetiredHandlingMode.INCLUDE_RETIRED)) {
+			existingMembersByUuid.put(member.getMetadataUuid(), member);
+		}
 		
-		if (members == null) {
-			return memberUuids;
-		} else {
-			for (MetadataSetMember member : members) {
-				memberUuids.add(member.getMetadataUuid());
+		// add any missing items, bringing back previously removed ones
+		for (Map.Entry<String, T> uuidAndObject : referredObjectsByUuid.entrySet()) {
+			MetadataSetMember member = existingMembersByUuid.get(uuidAndObject.getKey());
+			if (member == null) {
+				changedMembers.add(new MetadataSetMember(uuidAndObject.getValue(), existingSet));
+				added.add(uuidAndObject.getKey());
+			} else if (member.getRetired()) {
+				member.setRetired(false);
+				member.setRetiredBy(null);
+				member.setDateRetired(null);
+				member.setRetireReason(null);
+				changedMembers.add(member);
+				added.add(uuidAndObject.getKey());
+			} else {
+				unchanged.add(uuidAndObject.getKey());
 			}
 		}
 		
-		return memberUuids;
-	}
-	
-	private <T extends OpenmrsMetadata> List<String> mapToUuids(List<T> metadata) {
-		
-		List<String> uuids = new ArrayList<String>();
-		
-		if (metadata == null) {
-			return uuids;
-		} else {
-			for (OpenmrsObject member : metadata) {
-				uuids.add(member.getUuid());
+		// remove any items that are no longer there
+		User retiredBy = Context.getAuthenticatedUser();
+		Date dateRetired = new Date();
+		for (MetadataSetMember member : existingMembersByUuid.values()) {
+			if (!member.getRetired() && !referredObjectsByUuid.containsKey(member.getMetadataUuid())) {
+				member.setRetired(true);
+				member.setRetiredBy(retiredBy);
+				member.setDateRetired(dateRetired);
+				member.setRetireReason("removed from set");
+				changedMembers.add(member);
+				retired.add(member.getMetadataUuid());
 			}
 		}
 		
-		return uuids;
+		if (!changedMembers.isEmpty()) {
+			service.saveMetadataSetMembers(changedMembers);
+		}
+		
+		return new MetadataSetReconciliationResult(mapping, added, retired, unchanged);
 	}
 	
 	@Override
@@ -526,6 +753,64 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		return dao.saveMetadataTermMappings(metadataTermMappings);
 	}
 	
+	@Override
+	@Transactional
+	public MetadataTermMappingImportResult importMetadataTermMappings(Reader reader, MetadataTermMappingFormat format) {
+		try {
+			return newMetadataTermMappingImporter().importMappings(MetadataTermMappingReader.create(reader, format));
+		}
+		catch (IOException e) {
+			throw new APIException("Failed to read metadata term mappings: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	@Transactional
+	public MetadataTermMappingImportResult importMetadataTermMappings(List<MetadataTermMappingRow> rows) {
+		try {
+			return newMetadataTermMappingImporter().importMappings(MetadataTermMappingReader.create(rows),
+			    new MetadataTermMappingImportResult(true));
+		}
+		catch (IOException e) {
+			throw new APIException("Failed to read metadata term mappings: " + e.getMessage(), e);
+		}
+	}
+	
+	private MetadataTermMappingImporter newMetadataTermMappingImporter() {
+		return new MetadataTermMappingImporter(Context.getService(MetadataMappingService.class), dao,
+		        dao.getBatchSize());
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public void exportMetadataTermMappings(MetadataSource metadataSource, Writer writer,
+	        MetadataTermMappingFormat format) {
+		try {
+			final MetadataTermMappingWriter mappingWriter = MetadataTermMappingWriter.create(writer, format);
+			dao.scrollMetadataTermMappings(metadataSource,
+			    new BiConsumer<MetadataTermMapping, List<MetadataSetMember>>() {
+				    
+				    @Override
+				    public void accept(MetadataTermMapping mapping, List<MetadataSetMember> setMembers) {
+					    try {
+						    mappingWriter.write(mapping, setMembers);
+					    }
+					    catch (IOException e) {
+						    throw new UncheckedIOException(e);
+					    }
+				    }
+			    });
+			mappingWriter.finish();
+		}
+		catch (IOException e) {
+			throw new APIException("Failed to write metadata term mappings: " + e.getMessage(), e);
+		}
+		catch (UncheckedIOException e) {
+			IOException cause = e.getCause();
+			throw new APIException("Failed to write metadata term mappings: " + cause.getMessage(), cause);
+		}
+	}
+	
 	@Override
 	@Transactional(readOnly = true)
 	public MetadataTermMapping getMetadataTermMapping(Integer metadataTermMappingId) {
@@ -552,6 +837,26 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		return dao.getMetadataTermMappings(searchCriteria);
 	}
 	
+	@Override
+	@Transactional(readOnly = true)
+	public <T extends OpenmrsMetadata> Map<T, List<MetadataTermMapping>> getMetadataTermMappings(
+	        Collection<T> referredObjects) {
+		Map<T, List<MetadataTermMapping>> termMappings = new LinkedHashMap<T, List<MetadataTermMapping>>();
+		Map<String, T> referredObjectsByUuid = new HashMap<String, T>();
+		for (T referredObject : referredObjects) {
+			termMappings.put(referredObject, new ArrayList<MetadataTermMapping>());
+			referredObjectsByUuid.put(referredObject.getUuid(), referredObject);
+		}
+		
+		for (MetadataTermMapping termMapping : dao.getMetadataTermMappings(referredObjects)) {
+			T referredObject = referredObjectsByUuid.get(termMapping.getMetadataUuid());
+			if (referredObject != null) {
+				termMappings.get(referredObject).add(termMapping);
+			}
+		}
+		return termMappings;
+	}
+	
 	@Override
 	@Transactional
 	public MetadataTermMapping retireMetadataTermMapping(MetadataTermMapping metadataTermMapping, String reason) {
@@ -566,8 +871,9 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	}
 	
 	@Override
+	@Transactional(readOnly = true)
 	public MetadataTermMapping getMetadataTermMapping(String metadataSourceName, String metadataTermCode) {
-		return dao.getMetadataTermMapping(dao.getMetadataSourceByName(metadataSourceName), metadataTermCode);
+		return dao.getMetadataTermMapping(metadataSourceName, metadataTermCode);
 	}
 	
 	@Override
@@ -590,6 +896,19 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		return dao.getMetadataItems(type, metadataSourceName);
 	}
 	
+	@Override
+	@Transactional(readOnly = true)
+	public <T extends OpenmrsMetadata> Map<String, T> getMetadataItems(Class<T> type, String metadataSourceName,
+	        Collection<String> metadataTermCodes) {
+		return dao.getMetadataItems(type, metadataSourceName, metadataTermCodes);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public MetadataSourceSnapshot getMetadataSourceSnapshot(String metadataSourceName) {
+		return new MetadataSourceSnapshot(metadataSourceName, dao.getMetadataItemsByCode(metadataSourceName));
+	}
+	
 	@Override
 	@Transactional
 	public MetadataSet saveMetadataSet(MetadataSet metadataSet) {
@@ -619,27 +938,8 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 	public MetadataSet retireMetadataSet(MetadataSet metadataSet, String reason) {
 		// Required values on metadata set have already been set by the injected BaseRetireHandler.
 		
-		int firstResult = 0;
-		final int CHUNK_SIZE = 100;
-		while (true) {
-			List<MetadataSetMember> metadataSetMembers = dao.getMetadataSetMembers(metadataSet, firstResult, CHUNK_SIZE,
-			    RetiredHandlingMode.ONLY_ACTIVE);
-			
-			for (MetadataSetMember metadataSetMember : metadataSetMembers) {
-				metadataSetMember.setRetired(true);
-				metadataSetMember.setRetiredBy(metadataSet.getRetiredBy());
-				metadataSetMember.setRetireReason(reason);
-				metadataSetMember.setDateRetired(metadataSet.getDateRetired());
-				
-				dao.saveMetadataSetMember(metadataSetMember);
-			}
-			
-			if (metadataSetMembers.size() < CHUNK_SIZE) {
-				break;
-			} else {
-				firstResult = firstResult + CHUNK_SIZE;
-			}
-		}
+		// Members are retired with a single statement instead of loading and saving each of them
+		dao.retireMetadataSetMembers(metadataSet, metadataSet.getRetiredBy(), metadataSet.getDateRetired(), reason);
 		
 		return dao.saveMetadataSet(metadataSet);
 	}
@@ -699,6 +999,13 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		return dao.getMetadataSetMembers(metadataSet, firstResult, maxResults, retiredHandlingMode);
 	}
 	
+	@Override
+	@Transactional(readOnly = true)
+	public List<MetadataSetMember> getMetadataSetMembersAfter(MetadataSet metadataSet, MetadataSetMember after,
+	        int maxResults, RetiredHandlingMode retiredHandlingMode) {
+		return dao.getMetadataSetMembersAfter(metadataSet, after, maxResults, retiredHandlingMode);
+	}
+	
 	@Override
 	@Transactional(readOnly = true)
 	public <T extends OpenmrsMetadata> List<T> getMetadataSetItems(Class<T> type, MetadataSet metadataSet,
@@ -727,4 +1034,58 @@ public class MetadataMappingServiceImpl extends BaseOpenmrsService implements Me
 		// Required values have already been set by the injected BaseRetireHandler.
 		return dao.saveMetadataSetMember(metadataSetMember);
 	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return MetadataMapping.GP_LOCAL_SOURCE_UUID.equals(propertyName)
+		        || MetadataMapping.GP_SUBSCRIBED_TO_SOURCE_UUIDS.equals(propertyName)
+		        || MetadataMapping.GP_QUERY_CACHE_ENABLED.equals(propertyName)
+		        || MetadataMapping.GP_BATCH_SIZE.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		if (MetadataMapping.GP_QUERY_CACHE_ENABLED.equals(newValue.getProperty())) {
+			dao.setQueryCacheEnabled(Boolean.parseBoolean(StringUtils.trim(newValue.getPropertyValue())));
+		} else if (MetadataMapping.GP_BATCH_SIZE.equals(newValue.getProperty())) {
+			dao.setBatchSize(parseBatchSize(newValue.getPropertyValue()));
+		}
+		invalidateCachedGlobalProperty(newValue.getProperty());
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		if (MetadataMapping.GP_QUERY_CACHE_ENABLED.equals(propertyName)) {
+			dao.setQueryCacheEnabled(false);
+		} else if (MetadataMapping.GP_BATCH_SIZE.equals(propertyName)) {
+			dao.setBatchSize(MetadataMapping.DEFAULT_BATCH_SIZE);
+		}
+		invalidateCachedGlobalProperty(propertyName);
+	}
+	
+	/**
+	 * @param value value of the global property
+	 * @return positive batch size or the default, if the value is not a positive number
+	 */
+	public static int parseBatchSize(String value) {
+		int batchSize = NumberUtils.toInt(StringUtils.trim(value), MetadataMapping.DEFAULT_BATCH_SIZE);
+		return batchSize > 0 ? batchSize : MetadataMapping.DEFAULT_BATCH_SIZE;
+	}
+	
+	private void invalidateCachedGlobalProperty(String propertyName) {
+		if (MetadataMapping.GP_LOCAL_SOURCE_UUID.equals(propertyName)) {
+			localConceptSourceId.invalidate();
+		} else if (MetadataMapping.GP_SUBSCRIBED_TO_SOURCE_UUIDS.equals(propertyName)) {
+			subscribedConceptSourceIds.invalidate();
+		}
+	}
 }
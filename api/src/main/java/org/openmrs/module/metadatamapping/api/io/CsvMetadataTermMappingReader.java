@@ -0,0 +1,165 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads CSV tables as defined by RFC 4180. Values may be quoted, quoted values may contain commas, line breaks and
+ * doubled quotes. Unquoted values are trimmed, quoted values keep their whitespace as written by
+ * {@link CsvMetadataTermMappingWriter}. Empty values are read as null and blank lines are skipped. Consecutive rows
+ * with the same mapping columns, as written for the members of a set, are read as a single row.
+ */
+class CsvMetadataTermMappingReader extends MetadataTermMappingReader {
+	
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+	
+	private final BufferedReader reader;
+	
+	private final Map<String, Integer> columns = new HashMap<String, Integer>();
+	
+	/**
+	 * Indexes of the values of the last record, which were quoted.
+	 */
+	private final BitSet quotedValues = new BitSet();
+	
+	private int rowNumber;
+	
+	/**
+	 * Row read ahead to skip the rows repeating the row returned last.
+	 */
+	private MetadataTermMappingRow nextRow;
+	
+	CsvMetadataTermMappingReader(Reader reader) throws IOException {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		
+		List<String> header = readRecord();
+		if (header == null) {
+			throw new IOException("The CSV table has no header");
+		}
+		for (int i = 0; i < header.size(); i++) {
+			columns.put(StringUtils.strip(header.get(i), BYTE_ORDER_MARK + " \t"), i);
+		}
+		if (!columns.containsKey(MetadataTermMappingRow.SOURCE) || !columns.containsKey(MetadataTermMappingRow.CODE)) {
+			throw new IOException("The CSV header must name the columns " + MetadataTermMappingRow.SOURCE + " and "
+			        + MetadataTermMappingRow.CODE);
+		}
+	}
+	
+	@Override
+	public MetadataTermMappingRow read() throws IOException {
+		MetadataTermMappingRow row = nextRow != null ? nextRow : readRow();
+		if (row == null) {
+			return null;
+		}
+		
+		nextRow = readRow();
+		while (nextRow != null && isRepeated(row, nextRow)) {
+			nextRow = readRow();
+		}
+		return row;
+	}
+	
+	private boolean isRepeated(MetadataTermMappingRow row, MetadataTermMappingRow nextRow) {
+		return row.getCode() != null && row.getCode().equals(nextRow.getCode())
+		        && ObjectUtils.equals(row.getMetadataSourceName(), nextRow.getMetadataSourceName())
+		        && ObjectUtils.equals(row.getMetadataClass(), nextRow.getMetadataClass())
+		        && ObjectUtils.equals(row.getMetadataUuid(), nextRow.getMetadataUuid())
+		        && ObjectUtils.equals(row.getRetired(), nextRow.getRetired());
+	}
+	
+	private MetadataTermMappingRow readRow() throws IOException {
+		List<String> record = readRecord();
+		while (record != null && record.size() == 1 && !quotedValues.get(0) && StringUtils.isBlank(record.get(0))) {
+			record = readRecord();
+		}
+		if (record == null) {
+			return null;
+		}
+		
+		rowNumber++;
+		return new MetadataTermMappingRow(rowNumber, getValue(record, MetadataTermMappingRow.SOURCE), getValue(record,
+		    MetadataTermMappingRow.CODE), getValue(record, MetadataTermMappingRow.METADATA_CLASS), getValue(record,
+		    MetadataTermMappingRow.METADATA_UUID), getValue(record, MetadataTermMappingRow.RETIRED));
+	}
+	
+	private String getValue(List<String> record, String column) {
+		Integer index = columns.get(column);
+		if (index == null || index >= record.size()) {
+			return null;
+		}
+		if (quotedValues.get(index)) {
+			return StringUtils.defaultIfEmpty(record.get(index), null);
+		}
+		return StringUtils.trimToNull(record.get(index));
+	}
+	
+	/**
+	 * @return values of the next record or null at the end of the stream
+	 */
+	private List<String> readRecord() throws IOException {
+		int c = reader.read();
+		if (c == -1) {
+			return null;
+		}
+		
+		List<String> values = new ArrayList<String>();
+		quotedValues.clear();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("Unterminated quoted value after row " + rowNumber);
+				} else if (c == '"') {
+					c = reader.read();
+					if (c != '"') {
+						// closing quote, the character following it is processed as unquoted
+						quoted = false;
+						continue;
+					}
+				}
+				value.append((char) c);
+			} else if (c == '"' && value.length() == 0) {
+				quoted = true;
+				quotedValues.set(values.size());
+			} else if (c == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else if (c == '\r' || c == '\n' || c == -1) {
+				if (c == '\r') {
+					reader.mark(1);
+					if (reader.read() != '\n') {
+						reader.reset();
+					}
+				}
+				values.add(value.toString());
+				return values;
+			} else {
+				value.append((char) c);
+			}
+			c = reader.read();
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.metadatamapping.MetadataSetMember;
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes CSV tables as defined by RFC 4180. A mapping referring to a set is written in a row per member of the set,
+ * repeating the columns of the mapping.
+ */
+class CsvMetadataTermMappingWriter extends MetadataTermMappingWriter {
+	
+	private static final String[] HEADER = { MetadataTermMappingRow.SOURCE, MetadataTermMappingRow.CODE, NAME,
+	        MetadataTermMappingRow.METADATA_CLASS, MetadataTermMappingRow.METADATA_UUID, MetadataTermMappingRow.RETIRED,
+	        SET_MEMBER_CLASS, SET_MEMBER_UUID };
+	
+	private static final String LINE_SEPARATOR = "\r\n";
+	
+	private final Writer writer;
+	
+	CsvMetadataTermMappingWriter(Writer writer) throws IOException {
+		this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+		writeRecord(HEADER);
+	}
+	
+	@Override
+	public void write(MetadataTermMapping metadataTermMapping, List<MetadataSetMember> metadataSetMembers)
+	        throws IOException {
+		String[] record = { metadataTermMapping.getMetadataSource().getName(), metadataTermMapping.getCode(),
+		        metadataTermMapping.getName(), metadataTermMapping.getMetadataClass(),
+		        metadataTermMapping.getMetadataUuid(), String.valueOf(metadataTermMapping.getRetired()), null, null };
+		if (metadataSetMembers == null || metadataSetMembers.isEmpty()) {
+			writeRecord(record);
+			return;
+		}
+		for (MetadataSetMember metadataSetMember : metadataSetMembers) {
+			record[6] = metadataSetMember.getMetadataClass();
+			record[7] = metadataSetMember.getMetadataUuid();
+			writeRecord(record);
+		}
+	}
+	
+	@Override
+	public void finish() throws IOException {
+		writer.flush();
+	}
+	
+	private void writeRecord(String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+			writeValue(values[i]);
+		}
+		writer.write(LINE_SEPARATOR);
+	}
+	
+	private void writeValue(String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		if (StringUtils.containsAny(value, ",\"\r\n") || !value.equals(value.trim())) {
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+		} else {
+			writer.write(value);
+		}
+	}
+}
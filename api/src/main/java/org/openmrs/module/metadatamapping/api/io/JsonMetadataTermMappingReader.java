@@ -0,0 +1,83 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads JSON tables holding an array of objects. Properties other than the columns of the table are ignored.
+ * The array is parsed as a stream, so that only the current object is held in memory.
+ */
+class JsonMetadataTermMappingReader extends MetadataTermMappingReader {
+	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	
+	private final JsonParser parser;
+	
+	private int rowNumber;
+	
+	JsonMetadataTermMappingReader(Reader reader) throws IOException {
+		parser = JSON_FACTORY.createParser(reader);
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			throw new IOException("The JSON table must be an array of objects");
+		}
+	}
+	
+	@Override
+	public MetadataTermMappingRow read() throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == JsonToken.END_ARRAY || token == null) {
+			return null;
+		}
+		rowNumber++;
+		if (token != JsonToken.START_OBJECT) {
+			throw new IOException("Expected an object in row " + rowNumber + ", but found " + token);
+		}
+		
+		String metadataSourceName = null;
+		String code = null;
+		String metadataClass = null;
+		String metadataUuid = null;
+		String retired = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String property = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if (value.isStructStart()) {
+				parser.skipChildren();
+			} else if (MetadataTermMappingRow.SOURCE.equals(property)) {
+				metadataSourceName = getText(value);
+			} else if (MetadataTermMappingRow.CODE.equals(property)) {
+				code = getText(value);
+			} else if (MetadataTermMappingRow.METADATA_CLASS.equals(property)) {
+				metadataClass = getText(value);
+			} else if (MetadataTermMappingRow.METADATA_UUID.equals(property)) {
+				metadataUuid = getText(value);
+			} else if (MetadataTermMappingRow.RETIRED.equals(property)) {
+				retired = getText(value);
+			}
+		}
+		return new MetadataTermMappingRow(rowNumber, metadataSourceName, code, metadataClass, metadataUuid,
+		        retired);
+	}
+	
+	private String getText(JsonToken value) throws IOException {
+		return value == JsonToken.VALUE_NULL ? null : StringUtils.trimToNull(parser.getText());
+	}
+}
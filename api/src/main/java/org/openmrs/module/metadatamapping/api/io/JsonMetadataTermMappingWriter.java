@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.openmrs.module.metadatamapping.MetadataSetMember;
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes JSON tables holding an array of objects. Members of a set are written as an array in the object of the
+ * mapping referring to the set.
+ */
+class JsonMetadataTermMappingWriter extends MetadataTermMappingWriter {
+	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	
+	private final JsonGenerator generator;
+	
+	JsonMetadataTermMappingWriter(Writer writer) throws IOException {
+		generator = JSON_FACTORY.createGenerator(writer);
+		generator.writeStartArray();
+	}
+	
+	@Override
+	public void write(MetadataTermMapping metadataTermMapping, List<MetadataSetMember> metadataSetMembers)
+	        throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField(MetadataTermMappingRow.SOURCE, metadataTermMapping.getMetadataSource().getName());
+		generator.writeStringField(MetadataTermMappingRow.CODE, metadataTermMapping.getCode());
+		generator.writeStringField(NAME, metadataTermMapping.getName());
+		generator.writeStringField(MetadataTermMappingRow.METADATA_CLASS, metadataTermMapping.getMetadataClass());
+		generator.writeStringField(MetadataTermMappingRow.METADATA_UUID, metadataTermMapping.getMetadataUuid());
+		generator.writeBooleanField(MetadataTermMappingRow.RETIRED,
+		    Boolean.TRUE.equals(metadataTermMapping.getRetired()));
+		if (metadataSetMembers != null) {
+			generator.writeArrayFieldStart(SET_MEMBERS);
+			for (MetadataSetMember metadataSetMember : metadataSetMembers) {
+				generator.writeStartObject();
+				generator.writeStringField(MetadataTermMappingRow.METADATA_CLASS, metadataSetMember.getMetadataClass());
+				generator.writeStringField(MetadataTermMappingRow.METADATA_UUID, metadataSetMember.getMetadataUuid());
+				if (metadataSetMember.getSortWeight() != null) {
+					generator.writeNumberField(SORT_WEIGHT, metadataSetMember.getSortWeight().doubleValue());
+				}
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		generator.writeEndObject();
+	}
+	
+	@Override
+	public void finish() throws IOException {
+		generator.writeEndArray();
+		generator.flush();
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+/**
+ * File formats of metadata term mapping tables.
+ * <p>
+ * CSV files start with a header row naming the columns {@code source}, {@code code}, {@code metadataClass} and
+ * {@code metadataUuid} in any order. JSON files hold an array of objects with the same properties.
+ * @since 2.1.0
+ */
+public enum MetadataTermMappingFormat {
+	
+	CSV("text/csv"), JSON("application/json");
+	
+	private final String contentType;
+	
+	MetadataTermMappingFormat(String contentType) {
+		this.contentType = contentType;
+	}
+	
+	/**
+	 * @return MIME type of the format
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+}
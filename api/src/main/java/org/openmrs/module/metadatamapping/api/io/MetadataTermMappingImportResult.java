@@ -0,0 +1,224 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Summary of an import of metadata term mappings.
+ * <p>
+ * Only the first {@link #MAX_ROW_ERRORS} errors are kept, so that the summary does not grow with the size of the
+ * table. All errors are counted. Results of single rows are kept only if requested, for imports of known size.
+ * @since 2.1.0
+ */
+public class MetadataTermMappingImportResult {
+	
+	public static final int MAX_ROW_ERRORS = 1000;
+	
+	private int createdCount;
+	
+	private int updatedCount;
+	
+	private int unchangedCount;
+	
+	private int errorCount;
+	
+	private final List<RowError> errors = new ArrayList<RowError>();
+	
+	private final List<RowResult> rowResults;
+	
+	public MetadataTermMappingImportResult() {
+		this(false);
+	}
+	
+	/**
+	 * @param keepRowResults true to keep the result of every row
+	 */
+	public MetadataTermMappingImportResult(boolean keepRowResults) {
+		rowResults = keepRowResults ? new ArrayList<RowResult>() : null;
+	}
+	
+	/**
+	 * @return number of created term mappings
+	 */
+	public int getCreatedCount() {
+		return createdCount;
+	}
+	
+	/**
+	 * @return number of rows, which changed the mapped object of an existing term mapping
+	 */
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+	
+	/**
+	 * @return number of rows matching an existing term mapping
+	 */
+	public int getUnchangedCount() {
+		return unchangedCount;
+	}
+	
+	/**
+	 * @return number of rows, which were not imported
+	 */
+	public int getErrorCount() {
+		return errorCount;
+	}
+	
+	/**
+	 * @return errors of the rows, which were not imported, ordered by row number
+	 */
+	public List<RowError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+	
+	/**
+	 * @return results of all rows ordered by row number or null, if not kept
+	 */
+	public List<RowResult> getRowResults() {
+		if (rowResults == null) {
+			return null;
+		}
+		List<RowResult> sortedRowResults = new ArrayList<RowResult>(rowResults);
+		Collections.sort(sortedRowResults, new Comparator<RowResult>() {
+			
+			@Override
+			public int compare(RowResult a, RowResult b) {
+				return a.getRowNumber() < b.getRowNumber() ? -1 : (a.getRowNumber() == b.getRowNumber() ? 0 : 1);
+			}
+		});
+		return Collections.unmodifiableList(sortedRowResults);
+	}
+	
+	void created(MetadataTermMappingRow row, String metadataTermMappingUuid) {
+		createdCount++;
+		addRowResult(row, RowStatus.CREATED, metadataTermMappingUuid, null);
+	}
+	
+	void updated(MetadataTermMappingRow row, String metadataTermMappingUuid) {
+		updatedCount++;
+		addRowResult(row, RowStatus.UPDATED, metadataTermMappingUuid, null);
+	}
+	
+	void unchanged(MetadataTermMappingRow row, String metadataTermMappingUuid) {
+		unchangedCount++;
+		addRowResult(row, RowStatus.UNCHANGED, metadataTermMappingUuid, null);
+	}
+	
+	void error(MetadataTermMappingRow row, String message) {
+		errorCount++;
+		if (errors.size() < MAX_ROW_ERRORS) {
+			errors.add(new RowError(row.getRowNumber(), row.getMetadataSourceName(), row.getCode(), message));
+		}
+		addRowResult(row, RowStatus.ERROR, null, message);
+	}
+	
+	private void addRowResult(MetadataTermMappingRow row, RowStatus status, String metadataTermMappingUuid,
+	        String message) {
+		if (rowResults != null) {
+			rowResults.add(new RowResult(row.getRowNumber(), status, metadataTermMappingUuid, message));
+		}
+	}
+	
+	/**
+	 * Outcome of a row.
+	 */
+	public enum RowStatus {
+		CREATED, UPDATED, UNCHANGED, ERROR
+	}
+	
+	/**
+	 * Result of a row.
+	 */
+	public static class RowResult {
+		
+		private final int rowNumber;
+		
+		private final RowStatus status;
+		
+		private final String metadataTermMappingUuid;
+		
+		private final String message;
+		
+		RowResult(int rowNumber, RowStatus status, String metadataTermMappingUuid, String message) {
+			this.rowNumber = rowNumber;
+			this.status = status;
+			this.metadataTermMappingUuid = metadataTermMappingUuid;
+			this.message = message;
+		}
+		
+		public int getRowNumber() {
+			return rowNumber;
+		}
+		
+		public RowStatus getStatus() {
+			return status;
+		}
+		
+		/**
+		 * @return uuid of the created, updated or unchanged term mapping, or null in case of an error
+		 */
+		public String getMetadataTermMappingUuid() {
+			return metadataTermMappingUuid;
+		}
+		
+		/**
+		 * @return error message or null
+		 */
+		public String getMessage() {
+			return message;
+		}
+	}
+	
+	/**
+	 * Error of a row, which was not imported.
+	 */
+	public static class RowError {
+		
+		private final int rowNumber;
+		
+		private final String metadataSourceName;
+		
+		private final String code;
+		
+		private final String message;
+		
+		RowError(int rowNumber, String metadataSourceName, String code, String message) {
+			this.rowNumber = rowNumber;
+			this.metadataSourceName = metadataSourceName;
+			this.code = code;
+			this.message = message;
+		}
+		
+		public int getRowNumber() {
+			return rowNumber;
+		}
+		
+		public String getMetadataSourceName() {
+			return metadataSourceName;
+		}
+		
+		public String getCode() {
+			return code;
+		}
+		
+		public String getMessage() {
+			return message;
+		}
+	}
+}
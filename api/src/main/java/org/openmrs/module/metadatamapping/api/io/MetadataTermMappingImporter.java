@@ -0,0 +1,276 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.openmrs.OpenmrsMetadata;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.MetadataSource;
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates or updates metadata term mappings from rows of a table.
+ * <p>
+ * Rows are processed in batches. Sources are looked up once per import, existing mappings are fetched with a
+ * single query per source and batch, and changed mappings are saved together. The session is flushed and cleared
+ * after each batch, thus memory use does not depend on the size of the table. Invalid rows, including rows
+ * referring to metadata, which does not exist, are reported in the result and do not stop the import. The optional
+ * retired column retires or unretires the mapping, existing mappings keep their state if it is empty.
+ * @since 2.1.0
+ */
+public class MetadataTermMappingImporter {
+	
+	private static final int MAX_CODE_LENGTH = 255;
+	
+	private static final int MAX_UUID_LENGTH = 38;
+	
+	private static final String RETIRE_REASON = "Retired by import";
+	
+	private final MetadataMappingService service;
+	
+	private final MetadataMappingDAO dao;
+	
+	private final int batchSize;
+	
+	/**
+	 * Null values for names of sources, which do not exist.
+	 */
+	private final Map<String, MetadataSource> sourcesByName = new HashMap<String, MetadataSource>();
+	
+	/**
+	 * Null values for valid class names.
+	 */
+	private final Map<String, String> metadataClassErrors = new HashMap<String, String>();
+	
+	private final Map<String, Class<? extends OpenmrsMetadata>> metadataClasses =
+	        new HashMap<String, Class<? extends OpenmrsMetadata>>();
+	
+	/**
+	 * @param service service proxy used to save the mappings, so that required data is set
+	 * @param dao DAO used to look up sources and mappings
+	 * @param batchSize number of rows processed at once
+	 */
+	public MetadataTermMappingImporter(MetadataMappingService service, MetadataMappingDAO dao, int batchSize) {
+		this.service = service;
+		this.dao = dao;
+		this.batchSize = batchSize;
+	}
+	
+	/**
+	 * @param reader reader of the rows to import
+	 * @return summary of the import
+	 * @throws IOException if the rows cannot be read, batches imported before are flushed, but not committed, and
+	 *             are rolled back with the transaction of the caller
+	 */
+	public MetadataTermMappingImportResult importMappings(MetadataTermMappingReader reader) throws IOException {
+		return importMappings(reader, new MetadataTermMappingImportResult());
+	}
+	
+	/**
+	 * @param reader reader of the rows to import
+	 * @param result result to add the outcome of the rows to
+	 * @return the given result
+	 * @throws IOException if the rows cannot be read, batches imported before are flushed, but not committed, and
+	 *             are rolled back with the transaction of the caller
+	 */
+	public MetadataTermMappingImportResult importMappings(MetadataTermMappingReader reader,
+	        MetadataTermMappingImportResult result) throws IOException {
+		List<MetadataTermMappingRow> batch = new ArrayList<MetadataTermMappingRow>(batchSize);
+		for (MetadataTermMappingRow row = reader.read(); row != null; row = reader.read()) {
+			batch.add(row);
+			if (batch.size() == batchSize) {
+				importBatch(batch, result);
+				batch.clear();
+			}
+		}
+		importBatch(batch, result);
+		return result;
+	}
+	
+	private void importBatch(List<MetadataTermMappingRow> rows, MetadataTermMappingImportResult result) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		
+		List<MetadataTermMappingRow> validRows = new ArrayList<MetadataTermMappingRow>(rows.size());
+		Map<String, Set<String>> metadataUuidsByClass = new HashMap<String, Set<String>>();
+		for (MetadataTermMappingRow row : rows) {
+			String error = validate(row);
+			if (error != null) {
+				result.error(row, error);
+				continue;
+			}
+			
+			validRows.add(row);
+			if (row.getMetadataUuid() != null) {
+				Set<String> metadataUuids = metadataUuidsByClass.get(row.getMetadataClass());
+				if (metadataUuids == null) {
+					metadataUuids = new HashSet<String>();
+					metadataUuidsByClass.put(row.getMetadataClass(), metadataUuids);
+				}
+				metadataUuids.add(row.getMetadataUuid());
+			}
+		}
+		
+		Map<String, Set<String>> existingMetadataUuidsByClass = new HashMap<String, Set<String>>();
+		for (Map.Entry<String, Set<String>> classAndUuids : metadataUuidsByClass.entrySet()) {
+			existingMetadataUuidsByClass.put(classAndUuids.getKey(),
+			    dao.getExistingUuids(metadataClasses.get(classAndUuids.getKey()), classAndUuids.getValue()));
+		}
+		
+		Map<MetadataSource, List<MetadataTermMappingRow>> rowsBySource =
+		        new LinkedHashMap<MetadataSource, List<MetadataTermMappingRow>>();
+		for (MetadataTermMappingRow row : validRows) {
+			if (row.getMetadataUuid() != null
+			        && !existingMetadataUuidsByClass.get(row.getMetadataClass()).contains(row.getMetadataUuid())) {
+				result.error(row, "No " + row.getMetadataClass() + " with uuid " + row.getMetadataUuid());
+				continue;
+			}
+			
+			MetadataSource source = getMetadataSource(row.getMetadataSourceName());
+			if (source == null) {
+				result.error(row, "No source with name " + row.getMetadataSourceName());
+				continue;
+			}
+			
+			List<MetadataTermMappingRow> sourceRows = rowsBySource.get(source);
+			if (sourceRows == null) {
+				sourceRows = new ArrayList<MetadataTermMappingRow>();
+				rowsBySource.put(source, sourceRows);
+			}
+			sourceRows.add(row);
+		}
+		
+		Set<MetadataTermMapping> changedMappings = new LinkedHashSet<MetadataTermMapping>();
+		for (Map.Entry<MetadataSource, List<MetadataTermMappingRow>> sourceAndRows : rowsBySource.entrySet()) {
+			MetadataSource source = sourceAndRows.getKey();
+			
+			List<String> codes = new ArrayList<String>(sourceAndRows.getValue().size());
+			for (MetadataTermMappingRow row : sourceAndRows.getValue()) {
+				codes.add(row.getCode());
+			}
+			Map<String, MetadataTermMapping> mappingsByCode = new HashMap<String, MetadataTermMapping>();
+			for (MetadataTermMapping mapping : dao.getMetadataTermMappings(source, codes)) {
+				mappingsByCode.put(mapping.getCode(), mapping);
+			}
+			
+			for (MetadataTermMappingRow row : sourceAndRows.getValue()) {
+				Boolean retired = row.getRetired() == null ? null : Boolean.valueOf(row.getRetired());
+				MetadataTermMapping mapping = mappingsByCode.get(row.getCode());
+				if (mapping == null) {
+					mapping = new MetadataTermMapping();
+					mapping.setMetadataSource(source);
+					mapping.setCode(row.getCode());
+					mapping.setMetadataClass(row.getMetadataClass());
+					mapping.setMetadataUuid(row.getMetadataUuid());
+					setRetired(mapping, Boolean.TRUE.equals(retired));
+					mappingsByCode.put(row.getCode(), mapping);
+					changedMappings.add(mapping);
+					result.created(row, mapping.getUuid());
+				} else if (!ObjectUtils.equals(mapping.getMetadataClass(), row.getMetadataClass())
+				        || !ObjectUtils.equals(mapping.getMetadataUuid(), row.getMetadataUuid())
+				        || (retired != null && !retired.equals(mapping.getRetired()))) {
+					mapping.setMetadataClass(row.getMetadataClass());
+					mapping.setMetadataUuid(row.getMetadataUuid());
+					if (retired != null) {
+						setRetired(mapping, retired);
+					}
+					changedMappings.add(mapping);
+					result.updated(row, mapping.getUuid());
+				} else {
+					result.unchanged(row, mapping.getUuid());
+				}
+			}
+		}
+		
+		if (!changedMappings.isEmpty()) {
+			service.saveMetadataTermMappings(new ArrayList<MetadataTermMapping>(changedMappings));
+		}
+		dao.flushAndClearSession();
+	}
+	
+	/**
+	 * Retiring sets only the reason, the user and date are set by the save handler.
+	 */
+	private void setRetired(MetadataTermMapping mapping, boolean retired) {
+		if (retired == Boolean.TRUE.equals(mapping.getRetired())) {
+			return;
+		}
+		mapping.setRetired(retired);
+		mapping.setRetireReason(retired ? RETIRE_REASON : null);
+		mapping.setRetiredBy(null);
+		mapping.setDateRetired(null);
+	}
+	
+	private String validate(MetadataTermMappingRow row) {
+		if (row.getMetadataSourceName() == null) {
+			return "Source is required";
+		}
+		if (row.getCode() == null) {
+			return "Code is required";
+		}
+		if (row.getCode().length() > MAX_CODE_LENGTH) {
+			return "Code is longer than " + MAX_CODE_LENGTH + " characters";
+		}
+		if (row.getRetired() != null && !"true".equalsIgnoreCase(row.getRetired())
+		        && !"false".equalsIgnoreCase(row.getRetired())) {
+			return "Retired must be true or false";
+		}
+		if (row.getMetadataClass() == null) {
+			return row.getMetadataUuid() == null ? null : "Metadata class is required with metadata uuid";
+		}
+		if (row.getMetadataUuid() != null && row.getMetadataUuid().length() > MAX_UUID_LENGTH) {
+			return "Metadata uuid is longer than " + MAX_UUID_LENGTH + " characters";
+		}
+		return validateMetadataClass(row.getMetadataClass());
+	}
+	
+	private String validateMetadataClass(String metadataClass) {
+		if (!metadataClassErrors.containsKey(metadataClass)) {
+			String error = null;
+			try {
+				Class<?> type = Context.loadClass(metadataClass);
+				if (OpenmrsMetadata.class.isAssignableFrom(type)) {
+					metadataClasses.put(metadataClass, type.asSubclass(OpenmrsMetadata.class));
+				} else {
+					error = metadataClass + " is not a metadata class";
+				}
+			}
+			catch (ClassNotFoundException e) {
+				error = "Unknown metadata class " + metadataClass;
+			}
+			metadataClassErrors.put(metadataClass, error);
+		}
+		return metadataClassErrors.get(metadataClass);
+	}
+	
+	private MetadataSource getMetadataSource(String metadataSourceName) {
+		if (!sourcesByName.containsKey(metadataSourceName)) {
+			sourcesByName.put(metadataSourceName, dao.getMetadataSourceByName(metadataSourceName));
+		}
+		return sourcesByName.get(metadataSourceName);
+	}
+}
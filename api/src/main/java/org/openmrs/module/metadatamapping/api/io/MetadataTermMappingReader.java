@@ -0,0 +1,63 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Reads metadata term mapping rows one at a time, so that tables of any size can be processed in constant memory.
+ * @since 2.1.0
+ */
+public abstract class MetadataTermMappingReader {
+	
+	/**
+	 * @param reader character stream of the table, which is not closed by the returned reader
+	 * @param format format of the table
+	 * @return reader of the rows
+	 * @throws IOException if the stream cannot be read or the start of the table is malformed
+	 */
+	public static MetadataTermMappingReader create(Reader reader, MetadataTermMappingFormat format) throws IOException {
+		switch (format) {
+			case CSV:
+				return new CsvMetadataTermMappingReader(reader);
+			case JSON:
+				return new JsonMetadataTermMappingReader(reader);
+			default:
+				throw new IllegalArgumentException("Unsupported format " + format);
+		}
+	}
+	
+	/**
+	 * @param rows rows already in memory
+	 * @return reader of the given rows
+	 */
+	public static MetadataTermMappingReader create(Iterable<MetadataTermMappingRow> rows) {
+		final Iterator<MetadataTermMappingRow> iterator = rows.iterator();
+		return new MetadataTermMappingReader() {
+			
+			@Override
+			public MetadataTermMappingRow read() {
+				return iterator.hasNext() ? iterator.next() : null;
+			}
+		};
+	}
+	
+	/**
+	 * @return next row or null, if there are no more rows
+	 * @throws IOException if the stream cannot be read or the table is malformed
+	 */
+	public abstract MetadataTermMappingRow read() throws IOException;
+}
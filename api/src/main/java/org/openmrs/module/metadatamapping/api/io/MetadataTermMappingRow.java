@@ -0,0 +1,89 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+/**
+ * A single row of a metadata term mapping table.
+ * @since 2.1.0
+ */
+public class MetadataTermMappingRow {
+	
+	public static final String SOURCE = "source";
+	
+	public static final String CODE = "code";
+	
+	public static final String METADATA_CLASS = "metadataClass";
+	
+	public static final String METADATA_UUID = "metadataUuid";
+	
+	public static final String RETIRED = "retired";
+	
+	private final int rowNumber;
+	
+	private final String metadataSourceName;
+	
+	private final String code;
+	
+	private final String metadataClass;
+	
+	private final String metadataUuid;
+	
+	private final String retired;
+	
+	public MetadataTermMappingRow(int rowNumber, String metadataSourceName, String code, String metadataClass,
+	    String metadataUuid) {
+		this(rowNumber, metadataSourceName, code, metadataClass, metadataUuid, null);
+	}
+	
+	public MetadataTermMappingRow(int rowNumber, String metadataSourceName, String code, String metadataClass,
+	    String metadataUuid, String retired) {
+		this.rowNumber = rowNumber;
+		this.metadataSourceName = metadataSourceName;
+		this.code = code;
+		this.metadataClass = metadataClass;
+		this.metadataUuid = metadataUuid;
+		this.retired = retired;
+	}
+	
+	/**
+	 * @return number of the row starting from 1, not counting the header of a CSV file
+	 */
+	public int getRowNumber() {
+		return rowNumber;
+	}
+	
+	public String getMetadataSourceName() {
+		return metadataSourceName;
+	}
+	
+	public String getCode() {
+		return code;
+	}
+	
+	public String getMetadataClass() {
+		return metadataClass;
+	}
+	
+	public String getMetadataUuid() {
+		return metadataUuid;
+	}
+	
+	/**
+	 * @return <code>true</code> or <code>false</code> in any case, if the row sets the retired state of the mapping,
+	 *         otherwise the text of the cell or <code>null</code> to keep the state of an existing mapping
+	 */
+	public String getRetired() {
+		return retired;
+	}
+}
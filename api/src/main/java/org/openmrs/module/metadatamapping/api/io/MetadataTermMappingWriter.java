@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.io;
+
+import org.openmrs.module.metadatamapping.MetadataSetMember;
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes metadata term mappings one at a time, so that sources of any size can be exported in constant memory.
+ * Tables written in either format can be imported again, restoring the mappings and their retired state. Set members
+ * are written for reference only and are not imported, the rows repeating a mapping for each member of its set in a
+ * CSV table are read as a single row.
+ * @since 2.1.0
+ */
+public abstract class MetadataTermMappingWriter {
+	
+	public static final String NAME = "name";
+	
+	public static final String SET_MEMBERS = "setMembers";
+	
+	public static final String SET_MEMBER_CLASS = "setMemberClass";
+	
+	public static final String SET_MEMBER_UUID = "setMemberUuid";
+	
+	public static final String SORT_WEIGHT = "sortWeight";
+	
+	/**
+	 * @param writer character stream, which is not closed by the returned writer
+	 * @param format format of the table
+	 * @return writer of the mappings
+	 * @throws IOException if the start of the table cannot be written
+	 */
+	public static MetadataTermMappingWriter create(Writer writer, MetadataTermMappingFormat format) throws IOException {
+		switch (format) {
+			case CSV:
+				return new CsvMetadataTermMappingWriter(writer);
+			case JSON:
+				return new JsonMetadataTermMappingWriter(writer);
+			default:
+				throw new IllegalArgumentException("Unsupported format " + format);
+		}
+	}
+	
+	/**
+	 * @param metadataTermMapping mapping to write
+	 * @param metadataSetMembers members of the set the mapping refers to or null, if it does not refer to a set
+	 * @throws IOException if the mapping cannot be written
+	 */
+	public abstract void write(MetadataTermMapping metadataTermMapping, List<MetadataSetMember> metadataSetMembers)
+	        throws IOException;
+	
+	/**
+	 * Writes the end of the table and flushes the stream.
+	 * @throws IOException if the end of the table cannot be written
+	 */
+	public abstract void finish() throws IOException;
+}
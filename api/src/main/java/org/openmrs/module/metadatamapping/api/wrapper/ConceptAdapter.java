@@ -19,15 +19,33 @@ import org.openmrs.ConceptMapType;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSource;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.ValidationException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.openmrs.validator.ValidateUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Provides business logic for the Concept class.
  */
 @Component("metadatamapping.ConceptAdapter")
 public class ConceptAdapter {
 	
+	private static final String SAME_AS_MAP_TYPE_NAME = "SAME-AS";
+	
+	@Autowired
+	private MetadataMappingDAO dao;
+	
+	private volatile Integer sameAsMapTypeId;
+	
 	public void addMapping(Concept concept, ConceptSource source, String code) {
 		final ConceptService conceptService = Context.getConceptService();
 		
@@ -45,7 +63,7 @@ public class ConceptAdapter {
 		final ConceptMap map = new ConceptMap();
 		map.setConceptReferenceTerm(term);
 		
-		ConceptMapType mapType = conceptService.getConceptMapTypeByName("SAME-AS");
+		ConceptMapType mapType = getSameAsMapType();
 		map.setConceptMapType(mapType);
 		
 		concept.addConceptMapping(map);
@@ -53,6 +71,59 @@ public class ConceptAdapter {
 		conceptService.saveConcept(concept);
 	}
 	
+	/**
+	 * Adds a mapping in a format 'source:conceptId' to each of the given concepts.
+	 * <p>
+	 * Existing terms are fetched for all concepts at once and the SAME-AS map type is resolved once. New terms and
+	 * maps are written in a single flush instead of saving each concept separately, thus concept save handlers are
+	 * not run. New terms are validated before any of the concepts is changed.
+	 * 
+	 * @param concepts concepts to map, which must not have a mapping to the source yet
+	 * @param source source of the mappings
+	 * @throws ValidationException if a new term is invalid
+	 * @since 2.1.0
+	 */
+	public void addMappings(Collection<Concept> concepts, ConceptSource source) {
+		if (concepts.isEmpty()) {
+			return;
+		}
+		
+		Map<String, Concept> conceptsByCode = getConceptsByCode(concepts);
+		
+		Map<String, ConceptReferenceTerm> termsByCode = new HashMap<String, ConceptReferenceTerm>();
+		for (ConceptReferenceTerm term : dao.getConceptReferenceTerms(source, conceptsByCode.keySet())) {
+			termsByCode.put(term.getCode(), term);
+		}
+		
+		for (String code : conceptsByCode.keySet()) {
+			if (!termsByCode.containsKey(code)) {
+				ConceptReferenceTerm term = new ConceptReferenceTerm();
+				term.setConceptSource(source);
+				term.setCode(code);
+				ValidateUtil.validate(term);
+				termsByCode.put(code, term);
+			}
+		}
+		
+		ConceptMapType mapType = getSameAsMapType();
+		
+		List<ConceptReferenceTerm> terms = new ArrayList<ConceptReferenceTerm>(conceptsByCode.size());
+		for (Map.Entry<String, Concept> codeAndConcept : conceptsByCode.entrySet()) {
+			Concept concept = codeAndConcept.getValue();
+			ConceptReferenceTerm term = termsByCode.get(codeAndConcept.getKey());
+			term.setRetired(concept.isRetired());
+			terms.add(term);
+			
+			final ConceptMap map = new ConceptMap();
+			map.setConceptReferenceTerm(term);
+			map.setConceptMapType(mapType);
+			concept.addConceptMapping(map);
+		}
+		
+		dao.saveConceptReferenceTerms(terms);
+		Context.flushSession();
+	}
+	
 	public boolean hasMappingToSource(Concept concept, ConceptSource source) {
 		for (ConceptMap map : concept.getConceptMappings()) {
 			if (source.equals(map.getConceptReferenceTerm().getConceptSource())) {
@@ -93,6 +164,56 @@ public class ConceptAdapter {
 		}
 	}
 	
+	/**
+	 * Retires terms of the source, which any of the given concepts is mapped to and which have the id of that concept
+	 * as the code.
+	 * <p>
+	 * The terms are fetched with a single query. Each of them, which is not retired yet, is retired by the concept
+	 * service, so that the retire handlers run.
+	 * 
+	 * @param concepts saved concepts, for which to retire mappings
+	 * @param source source of the mappings
+	 * @return the number of retired terms
+	 * @since 2.1.0
+	 */
+	public int retireMappings(Collection<Concept> concepts, ConceptSource source) {
+		final ConceptService conceptService = Context.getConceptService();
+		Map<String, Concept> conceptsByCode = getConceptsByCode(concepts);
+		int retiredTerms = 0;
+		for (ConceptReferenceTerm term : dao.getMappedConceptReferenceTerms(source, concepts)) {
+			if (!term.isRetired()) {
+				conceptService.retireConceptReferenceTerm(term, "Retired with concept: "
+				        + conceptsByCode.get(term.getCode()).getUuid());
+				retiredTerms++;
+			}
+		}
+		return retiredTerms;
+	}
+	
+	/**
+	 * Unretires terms of the source, which any of the given concepts is mapped to and which have the id of that
+	 * concept as the code.
+	 * <p>
+	 * The terms are fetched with a single query. Each of them, which is retired, is unretired by the concept service,
+	 * so that the unretire handlers run.
+	 * 
+	 * @param concepts saved concepts, for which to unretire mappings
+	 * @param source source of the mappings
+	 * @return the number of unretired terms
+	 * @since 2.1.0
+	 */
+	public int unretireMappings(Collection<Concept> concepts, ConceptSource source) {
+		final ConceptService conceptService = Context.getConceptService();
+		int unretiredTerms = 0;
+		for (ConceptReferenceTerm term : dao.getMappedConceptReferenceTerms(source, concepts)) {
+			if (term.isRetired()) {
+				conceptService.unretireConceptReferenceTerm(term);
+				unretiredTerms++;
+			}
+		}
+		return unretiredTerms;
+	}
+	
 	public void purgeMapping(Concept concept, ConceptSource source, String code) {
 		if (hasMapping(concept, source, code)) {
 			final ConceptService conceptService = Context.getConceptService();
@@ -100,4 +221,32 @@ public class ConceptAdapter {
 			conceptService.purgeConceptReferenceTerm(term);
 		}
 	}
+	
+	private Map<String, Concept> getConceptsByCode(Collection<Concept> concepts) {
+		Map<String, Concept> conceptsByCode = new LinkedHashMap<String, Concept>();
+		for (Concept concept : concepts) {
+			conceptsByCode.put(concept.getId().toString(), concept);
+		}
+		return conceptsByCode;
+	}
+	
+	/**
+	 * The map type is looked up by name once, then it is loaded by id, which does not require a query if it is in
+	 * the session or the second-level cache.
+	 */
+	private ConceptMapType getSameAsMapType() {
+		final ConceptService conceptService = Context.getConceptService();
+		
+		Integer mapTypeId = sameAsMapTypeId;
+		if (mapTypeId != null) {
+			ConceptMapType mapType = conceptService.getConceptMapType(mapTypeId);
+			if (mapType != null && SAME_AS_MAP_TYPE_NAME.equals(mapType.getName())) {
+				return mapType;
+			}
+		}
+		
+		ConceptMapType mapType = conceptService.getConceptMapTypeByName(SAME_AS_MAP_TYPE_NAME);
+		sameAsMapTypeId = mapType != null ? mapType.getConceptMapTypeId() : null;
+		return mapType;
+	}
 }
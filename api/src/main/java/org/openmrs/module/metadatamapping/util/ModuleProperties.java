@@ -22,6 +22,7 @@ import org.openmrs.module.metadatamapping.MetadataSet;
 import org.openmrs.module.metadatamapping.MetadataSource;
 import org.openmrs.module.metadatamapping.MetadataTermMapping;
 import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.MetadataSourceSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
@@ -29,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helper class that lets modules centralize their configuration details. See EmrProperties for an example.
@@ -186,6 +188,36 @@ public abstract class ModuleProperties {
 		return getEmrApiMetadataByCode(type, code, true);
 	}
 	
+	/**
+	 * Resolves many codes of the same type at once.
+	 * @since 2.1.0
+	 */
+	protected <T extends OpenmrsMetadata> Map<String, T> getEmrApiMetadataByCodes(Class<T> type, Collection<String> codes,
+	        boolean required) {
+		Map<String, T> metadataItems = metadataMappingService.getMetadataItems(type, getMetadataSourceName(), codes);
+		if (required) {
+			List<String> missingCodes = new ArrayList<String>();
+			for (String code : codes) {
+				if (!metadataItems.containsKey(code)) {
+					missingCodes.add(code);
+				}
+			}
+			if (!missingCodes.isEmpty()) {
+				throw new IllegalStateException("Configuration required: " + StringUtils.join(missingCodes, ", "));
+			}
+		}
+		return metadataItems;
+	}
+	
+	/**
+	 * Resolves all codes of the metadata source at once. The snapshot may be kept for the life of a request to avoid
+	 * a query per code.
+	 * @since 2.1.0
+	 */
+	protected MetadataSourceSnapshot getEmrApiMetadataSnapshot() {
+		return metadataMappingService.getMetadataSourceSnapshot(getMetadataSourceName());
+	}
+	
 	protected Concept getSingleConceptByMapping(ConceptSource conceptSource, String code) {
 		List<Concept> candidates = conceptService.getConceptsByMapping(code, conceptSource.getName(), false);
 		if (candidates.size() == 0) {
@@ -24,6 +24,7 @@ import org.openmrs.ConceptSource;
 import org.openmrs.GlobalProperty;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.metadatamapping.MetadataMapping;
 import org.openmrs.module.metadatamapping.api.db.hibernate.interceptor.LocalMappingHibernateInterceptor;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
@@ -53,6 +54,10 @@ public class LocalMappingHibernateInterceptorTest extends BaseModuleContextSensi
 	@Qualifier("conceptService")
 	private ConceptService conceptService;
 	
+	@Autowired
+	@Qualifier("metadatamapping.LocalMappingHibernateInterceptor")
+	private LocalMappingHibernateInterceptor interceptor;
+	
 	private ConceptSource localConceptSource;
 	
 	@Before
@@ -93,6 +98,7 @@ public class LocalMappingHibernateInterceptorTest extends BaseModuleContextSensi
 		
 		//when
 		conceptService.purgeConcept(concept);
+		commit();
 		
 		//then
 		term = conceptService.getConceptReferenceTermByCode(id.toString(), localConceptSource);
@@ -111,10 +117,46 @@ public class LocalMappingHibernateInterceptorTest extends BaseModuleContextSensi
 		
 		//when
 		conceptService.retireConcept(concept, "Testing...");
+		commit();
 		
 		//then
 		term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
 		Assert.assertTrue(term.isRetired());
+		Assert.assertNotNull(term.getRetiredBy());
+		Assert.assertEquals("Retired with concept: " + concept.getUuid(), term.getRetireReason());
+	}
+	
+	@Test
+	public void shouldRetireConceptReferenceTermOnlyBeforeTransactionCommits() {
+		//given
+		Concept concept = conceptService.getConcept(3);
+		service.addLocalMappingToConcept(concept);
+		conceptService.retireConcept(concept, "Testing...");
+		Context.flushSession();
+		ConceptReferenceTerm term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
+		Assert.assertFalse(term.isRetired());
+		
+		//when
+		interceptor.beforeTransactionCompletion(null);
+		
+		//then
+		Assert.assertTrue(term.isRetired());
+	}
+	
+	@Test
+	public void shouldNotRetireConceptReferenceTermIfConceptNotMappedToIt() {
+		//given
+		ConceptReferenceTerm term = new ConceptReferenceTerm(localConceptSource, "3", null);
+		conceptService.saveConceptReferenceTerm(term);
+		Concept concept = conceptService.getConcept(3);
+		
+		//when
+		conceptService.retireConcept(concept, "Testing...");
+		commit();
+		
+		//then
+		term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
+		Assert.assertFalse(term.isRetired());
 	}
 	
 	@Test
@@ -133,9 +175,39 @@ public class LocalMappingHibernateInterceptorTest extends BaseModuleContextSensi
 		concept.setRetiredBy(null);
 		concept.setRetireReason(null);
 		conceptService.saveConcept(concept);
+		commit();
 		
 		//then
 		term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
 		Assert.assertFalse(term.isRetired());
 	}
+	
+	@Test
+	public void shouldSkipConceptUpdateIfRetiredNotChanged() {
+		//given
+		Concept concept = conceptService.getConcept(3);
+		service.addLocalMappingToConcept(concept);
+		Context.flushSession();
+		long skippedConceptUpdates = interceptor.getSkippedConceptUpdates();
+		long recordedConceptUpdates = interceptor.getRecordedConceptUpdates();
+		
+		//when
+		concept.setVersion("changed");
+		conceptService.saveConcept(concept);
+		Context.flushSession();
+		
+		//then
+		Assert.assertTrue(interceptor.getSkippedConceptUpdates() > skippedConceptUpdates);
+		Assert.assertEquals(recordedConceptUpdates, interceptor.getRecordedConceptUpdates());
+		ConceptReferenceTerm term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
+		Assert.assertFalse(term.isRetired());
+	}
+	
+	/**
+	 * The test transaction is rolled back, thus the interceptor is called as if it was committed.
+	 */
+	private void commit() {
+		Context.flushSession();
+		interceptor.beforeTransactionCompletion(null);
+	}
 }
@@ -17,11 +17,13 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Concept;
+import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSource;
 import org.openmrs.Drug;
 import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
 import org.openmrs.OpenmrsMetadata;
+import org.openmrs.Role;
 import org.openmrs.api.APIException;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
@@ -35,19 +37,31 @@ import org.openmrs.module.metadatamapping.MetadataTermMapping;
 import org.openmrs.module.metadatamapping.RetiredHandlingMode;
 import org.openmrs.module.metadatamapping.api.exception.InvalidMetadataTypeException;
 import org.openmrs.module.metadatamapping.api.impl.MetadataMappingServiceImpl;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingFormat;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImportResult;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingRow;
 import org.openmrs.module.metadatamapping.api.wrapper.ConceptAdapter;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.openmrs.test.Verifies;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -73,6 +87,14 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 	@Qualifier("metadatamapping.ConceptAdapter")
 	private ConceptAdapter conceptAdapter;
 	
+	@Autowired
+	@Qualifier("metadatamapping.MetadataMappingServiceImpl")
+	private MetadataMappingServiceImpl serviceImpl;
+	
+	@Autowired
+	@Qualifier("transactionManager")
+	private PlatformTransactionManager transactionManager;
+	
 	private ConceptSource localConceptSource;
 	
 	@Before
@@ -143,6 +165,181 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.fail();
 	}
 	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToConcepts(Integer, int)
+	 * @verifies add mappings to concepts after given id
+	 */
+	@Test
+	public void addLocalMappingToConcepts_shouldAddMappingsToConceptsAfterGivenId() throws Exception {
+		//given
+		Integer firstBatchLastConceptId = service.addLocalMappingToConcepts(null, 1);
+		
+		//when
+		Integer lastConceptId = service.addLocalMappingToConcepts(firstBatchLastConceptId, 2);
+		
+		//then
+		Assert.assertTrue(lastConceptId > firstBatchLastConceptId);
+		Concept concept = conceptService.getConcept(lastConceptId);
+		Assert.assertTrue(conceptAdapter.hasMapping(concept, conceptService.getConceptSource(localConceptSource
+		        .getConceptSourceId()), lastConceptId.toString()));
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToConcepts(Integer, int)
+	 * @verifies return null if no concepts left
+	 */
+	@Test
+	public void addLocalMappingToConcepts_shouldReturnNullIfNoConceptsLeft() throws Exception {
+		//when
+		Integer lastConceptId = service.addLocalMappingToConcepts(Integer.MAX_VALUE, 10);
+		
+		//then
+		Assert.assertNull(lastConceptId);
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToConcepts(Integer, int)
+	 * @verifies skip concepts already mapped to local source
+	 */
+	@Test
+	public void addLocalMappingToConcepts_shouldSkipConceptsAlreadyMappedToLocalSource() throws Exception {
+		//given
+		Concept mappedConcept = conceptService.getConcept(3);
+		service.addLocalMappingToConcept(mappedConcept);
+		int mapsCount = mappedConcept.getConceptMappings().size();
+		
+		//when
+		service.addLocalMappingToConcepts(null, Integer.MAX_VALUE);
+		
+		//then
+		Context.clearSession();
+		mappedConcept = conceptService.getConcept(3);
+		Assert.assertEquals(mapsCount, mappedConcept.getConceptMappings().size());
+		ConceptSource source = conceptService.getConceptSource(localConceptSource.getConceptSourceId());
+		for (Concept concept : conceptService.getAllConcepts()) {
+			Assert.assertTrue(conceptAdapter.hasMapping(concept, source, concept.getConceptId().toString()));
+		}
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToConcepts(Integer, int)
+	 * @verifies retire local mappings of retired concepts
+	 */
+	@Test
+	public void addLocalMappingToConcepts_shouldRetireLocalMappingsOfRetiredConcepts() throws Exception {
+		//given
+		Concept concept = conceptService.getConcept(3);
+		service.addLocalMappingToConcept(concept);
+		conceptService.retireConcept(concept, "to test...");
+		Context.flushSession();
+		ConceptReferenceTerm term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
+		conceptService.unretireConceptReferenceTerm(term);
+		Context.flushSession();
+		Assert.assertFalse(term.isRetired());
+		
+		//when
+		Integer lastConceptId = service.addLocalMappingToConcepts(2, 1);
+		
+		//then
+		Assert.assertEquals(Integer.valueOf(3), lastConceptId);
+		Context.clearSession();
+		term = conceptService.getConceptReferenceTermByCode("3", localConceptSource);
+		Assert.assertTrue(term.isRetired());
+		Assert.assertNotNull(term.getRetiredBy());
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToConcepts(Integer, int)
+	 * @verifies keep objects loaded by the caller in the session
+	 */
+	@Test
+	public void addLocalMappingToConcepts_shouldKeepObjectsLoadedByTheCallerInTheSession() throws Exception {
+		//given
+		Location location = locationService.getLocation(1);
+		MetadataSource metadataSource = service.getMetadataSource(1);
+		
+		//when
+		service.addLocalMappingToConcepts(null, Integer.MAX_VALUE);
+		
+		//then
+		Assert.assertSame(location, locationService.getLocation(1));
+		Assert.assertSame(metadataSource, service.getMetadataSource(1));
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#addLocalMappingToAllConcepts(int, boolean, LocalMappingProgressListener)
+	 * @verifies run each batch in a new transaction and notify listener
+	 */
+	@Test
+	public void addLocalMappingToAllConcepts_shouldRunEachBatchInANewTransactionAndNotifyListener() throws Exception {
+		//given
+		List<Concept> concepts = conceptService.getAllConcepts();
+		Integer maxConceptId = null;
+		for (Concept concept : concepts) {
+			if (maxConceptId == null || concept.getConceptId() > maxConceptId) {
+				maxConceptId = concept.getConceptId();
+			}
+		}
+		int batchSize = 2;
+		int expectedBatches = (concepts.size() + batchSize - 1) / batchSize;
+		
+		final List<Integer> processedConcepts = new ArrayList<Integer>();
+		final List<Integer> lastConceptIds = new ArrayList<Integer>();
+		LocalMappingProgressListener listener = new LocalMappingProgressListener() {
+			
+			@Override
+			public void batchProcessed(int processed, Integer lastConceptId) {
+				processedConcepts.add(processed);
+				lastConceptIds.add(lastConceptId);
+			}
+		};
+		
+		// batches join the test transaction, so that their work is visible and rolled back after the test
+		RecordingTransactionManager recordingTransactionManager = new RecordingTransactionManager(transactionManager);
+		serviceImpl.setTransactionManager(recordingTransactionManager);
+		try {
+			//when
+			service.addLocalMappingToAllConcepts(batchSize, true, listener);
+		}
+		finally {
+			serviceImpl.setTransactionManager(transactionManager);
+		}
+		
+		//then
+		assertThat(processedConcepts.size(), is(expectedBatches));
+		for (int i = 0; i < expectedBatches; i++) {
+			assertThat(processedConcepts.get(i), is(Math.min((i + 1) * batchSize, concepts.size())));
+		}
+		assertThat(lastConceptIds.get(lastConceptIds.size() - 1), is(maxConceptId));
+		
+		// the batch finding no concepts left runs in a transaction as well, if the last batch was full
+		int expectedTransactions = expectedBatches + (concepts.size() % batchSize == 0 ? 1 : 0);
+		assertThat(recordingTransactionManager.propagationBehaviors.size(), is(expectedTransactions));
+		for (Integer propagationBehavior : recordingTransactionManager.propagationBehaviors) {
+			assertThat(propagationBehavior, is(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+		}
+		
+		ConceptSource source = conceptService.getConceptSource(localConceptSource.getConceptSourceId());
+		for (Concept concept : concepts) {
+			Concept reloadedConcept = conceptService.getConcept(concept.getConceptId());
+			Assert.assertTrue(conceptAdapter.hasMapping(reloadedConcept, source, concept.getConceptId().toString()));
+		}
+	}
+	
+	/**
+	 * @see MetadataMappingServiceImpl#getLocalMappingJobStatus()
+	 * @verifies return idle status if job was not started
+	 */
+	@Test
+	public void getLocalMappingJobStatus_shouldReturnIdleStatusIfJobWasNotStarted() throws Exception {
+		//when
+		LocalMappingJobStatus status = service.getLocalMappingJobStatus();
+		
+		//then
+		assertThat(status.getState(), is(LocalMappingJobStatus.State.IDLE));
+		assertThat(status.getProcessedConcepts(), is(0L));
+	}
+	
 	/**
 	 * @see MetadataMappingServiceImpl#getConcept(Integer)
 	 * @verifies return non retired
@@ -293,6 +490,27 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.fail();
 	}
 	
+	/**
+	 * @see MetadataMappingServiceImpl#getLocalConceptSource()
+	 * @verifies return new source after gp changed
+	 */
+	@Test
+	public void getLocalConceptSource_shouldReturnNewSourceAfterGpChanged() throws Exception {
+		//given
+		Assert.assertEquals(localConceptSource, service.getLocalConceptSource());
+		ConceptSource newLocalConceptSource = new ConceptSource();
+		newLocalConceptSource.setName("new-dict");
+		newLocalConceptSource.setDescription("Description");
+		conceptService.saveConceptSource(newLocalConceptSource);
+		
+		//when
+		adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_LOCAL_SOURCE_UUID, newLocalConceptSource
+		        .getUuid()));
+		
+		//then
+		Assert.assertEquals(newLocalConceptSource, service.getLocalConceptSource());
+	}
+	
 	/**
 	 * @see MetadataMappingServiceImpl#getSubscribedConceptSources()
 	 * @verifies return set if gp defined
@@ -393,6 +611,30 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertFalse(localConcept);
 	}
 	
+	/**
+	 * @see MetadataMappingServiceImpl#isLocalConcept(Concept)
+	 * @verifies return true after source is unsubscribed
+	 */
+	@Test
+	public void isLocalConcept_shouldReturnTrueAfterSourceIsUnsubscribed() throws Exception {
+		//given
+		ConceptSource source = new ConceptSource();
+		source.setName("their-dict");
+		source.setDescription("Description");
+		conceptService.saveConceptSource(source);
+		service.addSubscribedConceptSource(source);
+		
+		Concept concept = conceptService.getConcept(3);
+		conceptAdapter.addMapping(concept, source, concept.getId().toString());
+		Assert.assertFalse(service.isLocalConcept(concept));
+		
+		//when
+		service.removeSubscribedConceptSource(source);
+		
+		//then
+		Assert.assertTrue(service.isLocalConcept(concept));
+	}
+	
 	/**
 	 * @see MetadataMappingService# addSubscribedConceptSource(ConceptSource)
 	 * @verifies add subscribed concept source
@@ -580,6 +822,35 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals("testing the retire method", metadataSource.getRetireReason());
 	}
 	
+	@Test
+	@Verifies(value = "return source by new name after it was renamed and flushed", method = "getMetadataSourceByName(String)")
+	public void getMetadataSourceByName_shouldReturnSourceByNewNameAfterItWasRenamedAndFlushed() {
+		// given
+		MetadataSource metadataSource = service.getMetadataSourceByName("Integration Test Metadata Source 1");
+		
+		// when
+		metadataSource.setName("Renamed Metadata Source");
+		service.saveMetadataSource(metadataSource);
+		Context.flushSession();
+		
+		// then
+		Assert.assertEquals(metadataSource, service.getMetadataSourceByName("Renamed Metadata Source"));
+		Assert.assertNull(service.getMetadataSourceByName("Integration Test Metadata Source 1"));
+	}
+	
+	@Test
+	@Verifies(value = "return null if source does not exist", method = "getMetadataSourceByName(String)")
+	public void getMetadataSourceByName_shouldReturnNullIfSourceDoesNotExist() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataSource metadataSource = service.getMetadataSourceByName("unknown source");
+		
+		// then
+		Assert.assertNull(metadataSource);
+	}
+	
 	@Test(expected = IllegalArgumentException.class)
 	@Verifies(value = "throw exception if no matching source", method = "mapMetadataItem")
 	public void mapMetadataItem_shouldThrowExceptionIfNoMatchingSource() {
@@ -747,6 +1018,90 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertTrue(retiredMember.isRetired());
 	}
 	
+	@Test
+	@Verifies(value = "should report all items as added when creating new MetadataSet", method = "reconcileMetadataItems")
+	public void reconcileMetadataItems_shouldReportAllItemsAsAddedWhenCreatingNewMetadataSet() {
+		// given
+		Location location1 = locationService.getLocation(1);
+		Location location2 = locationService.getLocation(2);
+		
+		List<OpenmrsMetadata> metadataList = new ArrayList<OpenmrsMetadata>();
+		metadataList.add(location1);
+		metadataList.add(location2);
+		metadataList.add(location1);
+		
+		// when
+		MetadataSetReconciliationResult result = service.reconcileMetadataItems(metadataList,
+		    "Integration Test Metadata Source 1", "new-location-set");
+		
+		// then
+		Assert.assertNotNull(result.getMetadataTermMapping().getId());
+		Assert.assertThat(result.getAddedMetadataUuids(), contains(location1.getUuid(), location2.getUuid()));
+		Assert.assertThat(result.getRetiredMetadataUuids(), is(empty()));
+		Assert.assertThat(result.getUnchangedMetadataUuids(), is(empty()));
+		
+		MetadataSet metadataSet = service.getMetadataItem(MetadataSet.class, "Integration Test Metadata Source 1",
+		    "new-location-set");
+		Assert.assertThat(service.getMetadataSetItems(Location.class, metadataSet).size(), is(2));
+	}
+	
+	@Test
+	@Verifies(value = "should report added, retired and unchanged items of existing MetadataSet", method = "reconcileMetadataItems")
+	public void reconcileMetadataItems_shouldReportAddedRetiredAndUnchangedItemsOfExistingMetadataSet() {
+		// given
+		Location location1 = locationService.getLocation(1);
+		Location location5 = locationService.getLocation(5);
+		Location location4 = locationService.getLocation(4);
+		
+		List<OpenmrsMetadata> metadataList = new ArrayList<OpenmrsMetadata>();
+		metadataList.add(location1);
+		metadataList.add(location4);
+		
+		// when
+		MetadataSetReconciliationResult result = service.reconcileMetadataItems(metadataList,
+		    "Integration Test Metadata Source 1", "location-set");
+		
+		// then
+		Assert.assertThat(result.getMetadataTermMapping().getUuid(), is("3bd2888a-80ea-496a-ada5-cf6e6c5c02b0"));
+		Assert.assertThat(result.getAddedMetadataUuids(), contains(location1.getUuid(), location4.getUuid()));
+		Assert.assertThat(result.getRetiredMetadataUuids(), contains(location5.getUuid()));
+		Assert.assertThat(result.getUnchangedMetadataUuids(), is(empty()));
+		
+		MetadataSetMember retiredMember = service.getMetadataSetMemberByUuid("58c0cf9d-c883-45e3-884e-92fc2e73566c");
+		Assert.assertTrue(retiredMember.isRetired());
+		Assert.assertThat(retiredMember.getRetireReason(), is("removed from set"));
+	}
+	
+	@Test
+	@Verifies(value = "should unretire previously retired member instead of adding new one", method = "reconcileMetadataItems")
+	public void reconcileMetadataItems_shouldUnretirePreviouslyRetiredMemberInsteadOfAddingNewOne() {
+		// given
+		Location location2 = locationService.getLocation(2);
+		Location location5 = locationService.getLocation(5);
+		
+		List<OpenmrsMetadata> metadataList = new ArrayList<OpenmrsMetadata>();
+		metadataList.add(location2);
+		metadataList.add(location5);
+		
+		// when
+		MetadataSetReconciliationResult result = service.reconcileMetadataItems(metadataList,
+		    "Integration Test Metadata Source 1", "location-set");
+		
+		// then
+		Assert.assertThat(result.getAddedMetadataUuids(), contains(location2.getUuid()));
+		Assert.assertThat(result.getUnchangedMetadataUuids(), contains(location5.getUuid()));
+		Assert.assertThat(result.getRetiredMetadataUuids(), is(empty()));
+		
+		MetadataSetMember unretiredMember = service.getMetadataSetMemberByUuid("41f994e0-dec7-40dc-8ca2-c08c6b9aa88d");
+		Assert.assertFalse(unretiredMember.isRetired());
+		Assert.assertNull(unretiredMember.getRetireReason());
+		
+		MetadataSet metadataSet = service.getMetadataItem(MetadataSet.class, "Integration Test Metadata Source 1",
+		    "location-set");
+		List<MetadataSetMember> members = service.getMetadataSetMembers(metadataSet, RetiredHandlingMode.INCLUDE_RETIRED);
+		Assert.assertThat(members.size(), is(2));
+	}
+	
 	@Test
 	@Verifies(value = "save valid new object", method = "saveMetadataTermMapping(MetadataTermMapping)")
 	public void saveMetadataTermMapping_shouldSaveValidNewObject() {
@@ -914,6 +1269,29 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals("mdt-nnl", termFromSource2.getCode());
 	}
 	
+	@Test
+	@SuppressWarnings("deprecation")
+	@Verifies(value = "return unretired term mappings by referred object", method = "getMetadataTermMappings"
+	        + "(Collection)")
+	public void getMetadataTermMappings_shouldReturnUnretiredTermMappingsByReferredObject() {
+		// given
+		// data in the test data set, and the following
+		Location neverNeverLand = locationService.getLocationByUuid("167ce20c-4785-4285-9119-d197268f7f4a");
+		Location xanadu = locationService.getLocationByUuid("9356400c-a5a2-4532-8f2b-2361b3446eb8");
+		Location unknownLocation = locationService.getLocation(1);
+		
+		// when
+		Map<Location, List<MetadataTermMapping>> termMappings = service.getMetadataTermMappings(Arrays.asList(
+		    neverNeverLand, xanadu, unknownLocation));
+		
+		// then
+		Assert.assertEquals(Arrays.asList(neverNeverLand, xanadu, unknownLocation), new ArrayList<Location>(termMappings
+		        .keySet()));
+		Assert.assertEquals(service.getMetadataTermMappings(neverNeverLand), termMappings.get(neverNeverLand));
+		Assert.assertEquals(service.getMetadataTermMappings(xanadu), termMappings.get(xanadu));
+		Assert.assertTrue(termMappings.get(unknownLocation).isEmpty());
+	}
+	
 	@Test
 	@Verifies(value = "return a retired term mapping", method = "getMetadataTermMapping(MetadataSource, String)")
 	public void getMetadataTermMapping_shouldReturnARetiredTermMapping() {
@@ -930,6 +1308,417 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals("xyz", metadataTermMapping.getCode());
 	}
 	
+	@Test
+	@Verifies(value = "return updated term mapping with query cache enabled", method = "getMetadataTermMapping(String, String)")
+	public void getMetadataTermMapping_shouldReturnUpdatedTermMappingWithQueryCacheEnabled() {
+		// given
+		// data in the test data set, and the following
+		adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_QUERY_CACHE_ENABLED, "true"));
+		try {
+			// the lookup by source name and code is a cacheable query, the first call puts its result in the cache
+			MetadataTermMapping metadataTermMapping = service.getMetadataTermMapping(
+			    "Integration Test Metadata Source 1", "mdt-xan");
+			metadataTermMapping.setMetadataUuid("167ce20c-4785-4285-9119-d197268f7f4a");
+			service.saveMetadataTermMapping(metadataTermMapping);
+			Context.flushSession();
+			Context.clearSession();
+			
+			// when
+			metadataTermMapping = service.getMetadataTermMapping("Integration Test Metadata Source 1", "mdt-xan");
+			
+			// then
+			Assert.assertEquals("167ce20c-4785-4285-9119-d197268f7f4a", metadataTermMapping.getMetadataUuid());
+		}
+		finally {
+			adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_QUERY_CACHE_ENABLED, "false"));
+		}
+	}
+	
+	@Test
+	@Verifies(value = "save mappings in batches", method = "saveMetadataTermMappings(Collection)")
+	public void saveMetadataTermMappings_shouldSaveMappingsInBatches() {
+		// given
+		adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_BATCH_SIZE, "2"));
+		try {
+			MetadataSource metadataSource = service.getMetadataSource(1);
+			List<MetadataTermMapping> metadataTermMappings = new ArrayList<MetadataTermMapping>();
+			for (int i = 1; i <= 5; i++) {
+				metadataTermMappings.add(new MetadataTermMapping(metadataSource, "batch-" + i, "org.openmrs.Location"));
+			}
+			
+			// when
+			service.saveMetadataTermMappings(metadataTermMappings);
+			
+			// then
+			for (int i = 1; i <= 5; i++) {
+				MetadataTermMapping metadataTermMapping = service.getMetadataTermMapping(metadataSource, "batch-" + i);
+				Assert.assertNotNull(metadataTermMapping);
+				Assert.assertEquals(metadataTermMappings.get(i - 1).getId(), metadataTermMapping.getId());
+				// evicted with its batch
+				Assert.assertNotSame(metadataTermMappings.get(i - 1), metadataTermMapping);
+			}
+		}
+		finally {
+			adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_BATCH_SIZE, "100"));
+		}
+	}
+	
+	@Test
+	@Verifies(value = "keep mappings of a single batch in the session", method = "saveMetadataTermMappings(Collection)")
+	public void saveMetadataTermMappings_shouldKeepMappingsOfASingleBatchInTheSession() {
+		// given
+		MetadataSource metadataSource = service.getMetadataSource(1);
+		List<MetadataTermMapping> metadataTermMappings = new ArrayList<MetadataTermMapping>();
+		for (int i = 1; i <= 3; i++) {
+			metadataTermMappings.add(new MetadataTermMapping(metadataSource, "batch-" + i, "org.openmrs.Location"));
+		}
+		
+		// when
+		service.saveMetadataTermMappings(metadataTermMappings);
+		
+		// then
+		for (int i = 1; i <= 3; i++) {
+			MetadataTermMapping metadataTermMapping = metadataTermMappings.get(i - 1);
+			Assert.assertNotNull(metadataTermMapping.getId());
+			Assert.assertNotNull(metadataTermMapping.getCreator());
+			Assert.assertSame(metadataTermMapping, service.getMetadataTermMapping(metadataSource, "batch-" + i));
+		}
+	}
+	
+	@Test
+	@Verifies(value = "create and update term mappings from CSV", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldCreateAndUpdateTermMappingsFromCsv() {
+		// given
+		// data in the test data set, and the following
+		String csv = "code,source,metadataClass,metadataUuid\r\n"
+		        + "mdt-xan,Integration Test Metadata Source 1,org.openmrs.Location,"
+		        + "167ce20c-4785-4285-9119-d197268f7f4a\r\n"
+		        + "mdt-nnl,Integration Test Metadata Source 1,org.openmrs.Location,"
+		        + "167ce20c-4785-4285-9119-d197268f7f4a\r\n"
+		        + "\"imported, quoted\",Integration Test Metadata Source 2,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8\r\n" + "\r\n";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(csv),
+		    MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(1, result.getCreatedCount());
+		Assert.assertEquals(1, result.getUpdatedCount());
+		Assert.assertEquals(1, result.getUnchangedCount());
+		Assert.assertEquals(0, result.getErrorCount());
+		
+		MetadataTermMapping updated = service.getMetadataTermMapping(service.getMetadataSource(1), "mdt-xan");
+		Assert.assertEquals("167ce20c-4785-4285-9119-d197268f7f4a", updated.getMetadataUuid());
+		MetadataTermMapping created = service.getMetadataTermMapping(service.getMetadataSource(2), "imported, quoted");
+		Assert.assertNotNull(created);
+		Assert.assertEquals("org.openmrs.Location", created.getMetadataClass());
+		Assert.assertEquals("9356400c-a5a2-4532-8f2b-2361b3446eb8", created.getMetadataUuid());
+		Assert.assertNotNull(created.getCreator());
+	}
+	
+	@Test
+	@Verifies(value = "create term mappings from JSON", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldCreateTermMappingsFromJson() {
+		// given
+		String json = "[{\"source\": \"Integration Test Metadata Source 1\", \"code\": \"imported-1\", "
+		        + "\"metadataClass\": \"org.openmrs.Location\", "
+		        + "\"metadataUuid\": \"9356400c-a5a2-4532-8f2b-2361b3446eb8\", \"ignored\": {\"a\": [1, 2]}}, "
+		        + "{\"source\": \"Integration Test Metadata Source 1\", \"code\": \"imported-2\", "
+		        + "\"metadataClass\": null}]";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(json),
+		    MetadataTermMappingFormat.JSON);
+		
+		// then
+		Assert.assertEquals(2, result.getCreatedCount());
+		Assert.assertEquals(0, result.getErrorCount());
+		Location location = service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "imported-1");
+		Assert.assertEquals("9356400c-a5a2-4532-8f2b-2361b3446eb8", location.getUuid());
+		MetadataTermMapping unmapped = service.getMetadataTermMapping(service.getMetadataSource(1), "imported-2");
+		Assert.assertNull(unmapped.getMetadataClass());
+	}
+	
+	@Test
+	@Verifies(value = "report invalid rows and import the others", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldReportInvalidRowsAndImportTheOthers() {
+		// given
+		String csv = "source,code,metadataClass,metadataUuid\n" + "No Such Source,code-1,,\n"
+		        + "Integration Test Metadata Source 1,,,\n"
+		        + "Integration Test Metadata Source 1,code-3,org.openmrs.NoSuchClass,\n"
+		        + "Integration Test Metadata Source 1,code-4,java.lang.String,\n"
+		        + "Integration Test Metadata Source 1,code-5,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8\n";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(csv),
+		    MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(1, result.getCreatedCount());
+		Assert.assertEquals(4, result.getErrorCount());
+		List<MetadataTermMappingImportResult.RowError> errors = result.getErrors();
+		Assert.assertEquals(1, errors.get(0).getRowNumber());
+		Assert.assertEquals("No source with name No Such Source", errors.get(0).getMessage());
+		Assert.assertEquals(2, errors.get(1).getRowNumber());
+		Assert.assertEquals("Code is required", errors.get(1).getMessage());
+		Assert.assertEquals("Unknown metadata class org.openmrs.NoSuchClass", errors.get(2).getMessage());
+		Assert.assertEquals("java.lang.String is not a metadata class", errors.get(3).getMessage());
+		Assert.assertNotNull(service.getMetadataTermMapping(service.getMetadataSource(1), "code-5"));
+	}
+	
+	@Test
+	@Verifies(value = "keep whitespace of quoted values", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldKeepWhitespaceOfQuotedValues() {
+		// given
+		MetadataSource metadataSource = new MetadataSource();
+		metadataSource.setName("my-source");
+		service.saveMetadataSource(metadataSource);
+		service.saveMetadataTermMapping(new MetadataTermMapping(metadataSource, " padded code ", "org.openmrs.Location",
+		        "9356400c-a5a2-4532-8f2b-2361b3446eb8"));
+		StringWriter writer = new StringWriter();
+		service.exportMetadataTermMappings(metadataSource, writer, MetadataTermMappingFormat.CSV);
+		Assert.assertTrue(writer.toString().contains(",\" padded code \","));
+		String csv = writer.toString()
+		        + "my-source,  trimmed code  ,,org.openmrs.Location,9356400c-a5a2-4532-8f2b-2361b3446eb8,false,,\r\n";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(csv),
+		    MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(1, result.getUnchangedCount());
+		Assert.assertEquals(1, result.getCreatedCount());
+		Assert.assertEquals(0, result.getErrorCount());
+		Assert.assertNotNull(service.getMetadataTermMapping(metadataSource, " padded code "));
+		Assert.assertNotNull(service.getMetadataTermMapping(metadataSource, "trimmed code"));
+	}
+	
+	@Test
+	@Verifies(value = "retire and unretire term mappings", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldRetireAndUnretireTermMappings() {
+		// given
+		// data in the test data set, and the following
+		String csv = "source,code,metadataClass,metadataUuid,retired\n"
+		        + "Integration Test Metadata Source 1,mdt-xan,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8,TRUE\n"
+		        + "Integration Test Metadata Source 1,xyz,org.openmrs.Location,"
+		        + "167ce20c-4785-4285-9119-d197268f7f4a,false\n"
+		        + "Integration Test Metadata Source 1,abc,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8,\n"
+		        + "Integration Test Metadata Source 1,imported-retired,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8,true\n"
+		        + "Integration Test Metadata Source 1,code-5,,,maybe\n";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(csv),
+		    MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(1, result.getCreatedCount());
+		Assert.assertEquals(2, result.getUpdatedCount());
+		Assert.assertEquals(1, result.getUnchangedCount());
+		Assert.assertEquals(1, result.getErrorCount());
+		Assert.assertEquals("Retired must be true or false", result.getErrors().get(0).getMessage());
+		
+		MetadataSource metadataSource = service.getMetadataSource(1);
+		MetadataTermMapping retired = service.getMetadataTermMapping(metadataSource, "mdt-xan");
+		Assert.assertTrue(retired.getRetired());
+		Assert.assertEquals("Retired by import", retired.getRetireReason());
+		Assert.assertNotNull(retired.getRetiredBy());
+		Assert.assertNotNull(retired.getDateRetired());
+		
+		MetadataTermMapping unretired = service.getMetadataTermMapping(metadataSource, "xyz");
+		Assert.assertFalse(unretired.getRetired());
+		Assert.assertNull(unretired.getRetireReason());
+		Assert.assertNull(unretired.getRetiredBy());
+		Assert.assertNull(unretired.getDateRetired());
+		
+		Assert.assertTrue(service.getMetadataTermMapping(metadataSource, "abc").getRetired());
+		Assert.assertTrue(service.getMetadataTermMapping(metadataSource, "imported-retired").getRetired());
+	}
+	
+	@Test
+	@Verifies(value = "report rows referring to metadata which does not exist", method = "importMetadataTermMappings(Reader, MetadataTermMappingFormat)")
+	public void importMetadataTermMappings_shouldReportRowsReferringToMetadataWhichDoesNotExist() {
+		// given
+		// data in the test data set, and the following
+		String csv = "source,code,metadataClass,metadataUuid\n"
+		        + "Integration Test Metadata Source 1,mdt-xan,org.openmrs.Location,"
+		        + "00000000-0000-0000-0000-000000000000\n"
+		        + "Integration Test Metadata Source 1,code-2,org.openmrs.EncounterType,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8\n"
+		        + "Integration Test Metadata Source 1,code-3,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8\n";
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(new StringReader(csv),
+		    MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(1, result.getCreatedCount());
+		Assert.assertEquals(2, result.getErrorCount());
+		List<MetadataTermMappingImportResult.RowError> errors = result.getErrors();
+		Assert.assertEquals(1, errors.get(0).getRowNumber());
+		Assert.assertEquals("No org.openmrs.Location with uuid 00000000-0000-0000-0000-000000000000", errors.get(0)
+		        .getMessage());
+		Assert.assertEquals(2, errors.get(1).getRowNumber());
+		Assert.assertEquals("No org.openmrs.EncounterType with uuid 9356400c-a5a2-4532-8f2b-2361b3446eb8", errors.get(1)
+		        .getMessage());
+		
+		MetadataSource metadataSource = service.getMetadataSource(1);
+		Assert.assertEquals("9356400c-a5a2-4532-8f2b-2361b3446eb8",
+		    service.getMetadataTermMapping(metadataSource, "mdt-xan").getMetadataUuid());
+		Assert.assertNull(service.getMetadataTermMapping(metadataSource, "code-2"));
+	}
+	
+	@Test
+	@Verifies(value = "return the result of every row", method = "importMetadataTermMappings(List)")
+	public void importMetadataTermMappings_shouldReturnTheResultOfEveryRow() {
+		// given
+		// data in the test data set, and the following
+		List<MetadataTermMappingRow> rows = new ArrayList<MetadataTermMappingRow>();
+		rows.add(new MetadataTermMappingRow(1, "Integration Test Metadata Source 1", "mdt-nnl", "org.openmrs.Location",
+		        "167ce20c-4785-4285-9119-d197268f7f4a"));
+		rows.add(new MetadataTermMappingRow(2, "No Such Source", "code-2", null, null));
+		rows.add(new MetadataTermMappingRow(3, "Integration Test Metadata Source 1", "bulk-3", "org.openmrs.Location",
+		        "9356400c-a5a2-4532-8f2b-2361b3446eb8"));
+		rows.add(new MetadataTermMappingRow(4, "Integration Test Metadata Source 1", "mdt-xan", "org.openmrs.Location",
+		        "167ce20c-4785-4285-9119-d197268f7f4a"));
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(rows);
+		
+		// then
+		List<MetadataTermMappingImportResult.RowResult> rowResults = result.getRowResults();
+		Assert.assertEquals(4, rowResults.size());
+		Assert.assertEquals(MetadataTermMappingImportResult.RowStatus.UNCHANGED, rowResults.get(0).getStatus());
+		Assert.assertEquals(MetadataTermMappingImportResult.RowStatus.ERROR, rowResults.get(1).getStatus());
+		Assert.assertEquals("No source with name No Such Source", rowResults.get(1).getMessage());
+		Assert.assertNull(rowResults.get(1).getMetadataTermMappingUuid());
+		Assert.assertEquals(MetadataTermMappingImportResult.RowStatus.CREATED, rowResults.get(2).getStatus());
+		Assert.assertEquals(MetadataTermMappingImportResult.RowStatus.UPDATED, rowResults.get(3).getStatus());
+		
+		String createdUuid = rowResults.get(2).getMetadataTermMappingUuid();
+		Assert.assertEquals("bulk-3", service.getMetadataTermMappingByUuid(createdUuid).getCode());
+	}
+	
+	@Test
+	@Verifies(value = "write term mappings and set members as CSV", method = "exportMetadataTermMappings(MetadataSource, Writer, MetadataTermMappingFormat)")
+	public void exportMetadataTermMappings_shouldWriteTermMappingsAndSetMembersAsCsv() {
+		// given
+		// data in the test data set
+		StringWriter writer = new StringWriter();
+		
+		// when
+		service.exportMetadataTermMappings(service.getMetadataSource(1), writer, MetadataTermMappingFormat.CSV);
+		
+		// then
+		String[] lines = writer.toString().split("\r\n");
+		Assert.assertEquals(8, lines.length);
+		Assert.assertEquals("source,code,name,metadataClass,metadataUuid,retired,setMemberClass,setMemberUuid",
+		    lines[0]);
+		Assert.assertEquals("Integration Test Metadata Source 1,mdt-xan,Location Xanadu,org.openmrs.Location,"
+		        + "9356400c-a5a2-4532-8f2b-2361b3446eb8,false,,", lines[1]);
+		Assert.assertEquals("Integration Test Metadata Source 1,xyz,Location Never Never Land (Term Retired),"
+		        + "org.openmrs.Location,167ce20c-4785-4285-9119-d197268f7f4a,true,,", lines[3]);
+		Assert.assertEquals("Integration Test Metadata Source 1,location-set,Location Set,"
+		        + "org.openmrs.module.metadatamapping.MetadataSet,efad9246-8346-4288-9d74-fd81dda3568b,false,"
+		        + "org.openmrs.Location,d3d180c6-d5fb-4202-b1a6-80a06273c158", lines[7]);
+	}
+	
+	@Test
+	@Verifies(value = "write term mappings and set members as JSON", method = "exportMetadataTermMappings(MetadataSource, Writer, MetadataTermMappingFormat)")
+	public void exportMetadataTermMappings_shouldWriteTermMappingsAndSetMembersAsJson() {
+		// given
+		// data in the test data set
+		StringWriter writer = new StringWriter();
+		
+		// when
+		service.exportMetadataTermMappings(service.getMetadataSource(1), writer, MetadataTermMappingFormat.JSON);
+		
+		// then
+		String json = writer.toString();
+		Assert.assertTrue(json.startsWith("[{\"source\":\"Integration Test Metadata Source 1\",\"code\":\"mdt-xan\","));
+		Assert.assertTrue(json.endsWith("}]"));
+		Assert.assertTrue(json.contains("\"code\":\"location-set\",\"name\":\"Location Set\","
+		        + "\"metadataClass\":\"org.openmrs.module.metadatamapping.MetadataSet\","
+		        + "\"metadataUuid\":\"efad9246-8346-4288-9d74-fd81dda3568b\",\"retired\":false,"
+		        + "\"setMembers\":[{\"metadataClass\":\"org.openmrs.Location\","
+		        + "\"metadataUuid\":\"d3d180c6-d5fb-4202-b1a6-80a06273c158\",\"sortWeight\":3.0}]}"));
+		Assert.assertEquals(json.indexOf("setMembers"), json.lastIndexOf("setMembers"));
+	}
+	
+	@Test
+	@Verifies(value = "write tables which import to the same mappings", method = "exportMetadataTermMappings(MetadataSource, Writer, MetadataTermMappingFormat)")
+	public void exportMetadataTermMappings_shouldWriteTablesWhichImportToTheSameMappings() {
+		// given
+		// data in the test data set, and a second member of the location set, so that the set is written in two rows
+		MetadataSource metadataSource = service.getMetadataSource(1);
+		service.saveMetadataSetMember(service.getMetadataSetByUuid("efad9246-8346-4288-9d74-fd81dda3568b"), Context
+		        .getLocationService().getLocationByUuid("167ce20c-4785-4285-9119-d197268f7f4a"));
+		StringWriter writer = new StringWriter();
+		service.exportMetadataTermMappings(metadataSource, writer, MetadataTermMappingFormat.CSV);
+		Assert.assertEquals(9, writer.toString().split("\r\n").length);
+		
+		// and the mappings are changed after the export
+		service.retireMetadataTermMapping(service.getMetadataTermMapping(metadataSource, "mdt-nnl"), "changed");
+		MetadataTermMapping unretired = service.getMetadataTermMapping(metadataSource, "xyz");
+		unretired.setRetired(false);
+		unretired.setRetiredBy(null);
+		unretired.setDateRetired(null);
+		unretired.setRetireReason(null);
+		service.saveMetadataTermMapping(unretired);
+		MetadataTermMapping moved = service.getMetadataTermMapping(metadataSource, "mdt-xan");
+		moved.setMetadataUuid("167ce20c-4785-4285-9119-d197268f7f4a");
+		service.saveMetadataTermMapping(moved);
+		
+		// when
+		MetadataTermMappingImportResult result = service.importMetadataTermMappings(
+		    new StringReader(writer.toString()), MetadataTermMappingFormat.CSV);
+		
+		// then
+		Assert.assertEquals(0, result.getErrorCount());
+		Assert.assertEquals(0, result.getCreatedCount());
+		Assert.assertEquals(3, result.getUpdatedCount());
+		Assert.assertEquals(4, result.getUnchangedCount());
+		Assert.assertFalse(service.getMetadataTermMapping(metadataSource, "mdt-nnl").getRetired());
+		Assert.assertTrue(service.getMetadataTermMapping(metadataSource, "xyz").getRetired());
+		Assert.assertTrue(service.getMetadataTermMapping(metadataSource, "abc").getRetired());
+		Assert.assertEquals("9356400c-a5a2-4532-8f2b-2361b3446eb8",
+		    service.getMetadataTermMapping(metadataSource, "mdt-xan").getMetadataUuid());
+	}
+	
+	@Test
+	@Verifies(value = "return a retired term mapping", method = "getMetadataTermMapping(String, String)")
+	public void getMetadataTermMapping_shouldReturnARetiredTermMappingBySourceName() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataTermMapping metadataTermMapping = service.getMetadataTermMapping("Integration Test Metadata Source 1",
+		    "xyz");
+		
+		// then
+		Assert.assertNotNull(metadataTermMapping);
+		Assert.assertTrue(metadataTermMapping.isRetired());
+		Assert.assertEquals("a6830197-b0a6-4b21-8b72-de7a1ec9dfab", metadataTermMapping.getUuid());
+	}
+	
+	@Test
+	@Verifies(value = "return null if source does not exist", method = "getMetadataTermMapping(String, String)")
+	public void getMetadataTermMapping_shouldReturnNullIfSourceDoesNotExist() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataTermMapping metadataTermMapping = service.getMetadataTermMapping("unknown source", "xyz");
+		
+		// then
+		Assert.assertNull(metadataTermMapping);
+	}
+	
 	@Test
 	@Verifies(value = "return only unretired term mappings", method = "getMetadataTermMappings(MetadataSource)")
 	@SuppressWarnings("deprecation")
@@ -1037,6 +1826,53 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertNull(location);
 	}
 	
+	@Test
+	@Verifies(value = "return item of updated mapping after it was cached", method = "getMetadataItem(Class, String, "
+	        + "String)")
+	public void getMetadataItem_shouldReturnItemOfUpdatedMappingAfterItWasCached() {
+		// given
+		Location xanadu = service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "mdt-xan");
+		Assert.assertEquals("Xanadu", xanadu.getName());
+		Location neverNeverLand = service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "mdt-nnl");
+		
+		// when
+		service.mapMetadataItem(neverNeverLand, "Integration Test Metadata Source 1", "mdt-xan");
+		Location location = service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "mdt-xan");
+		
+		// then
+		Assert.assertEquals(neverNeverLand, location);
+	}
+	
+	@Test
+	@Verifies(value = "return null after cached mapping is retired", method = "getMetadataItem(Class, String, String)")
+	public void getMetadataItem_shouldReturnNullAfterCachedMappingIsRetired() {
+		// given
+		Assert.assertNotNull(service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "mdt-xan"));
+		MetadataTermMapping xanaduTermMapping = service.getMetadataTermMapping(service.getMetadataSource(1), "mdt-xan");
+		
+		// when
+		service.retireMetadataTermMapping(xanaduTermMapping, "testing the cache");
+		Location location = service.getMetadataItem(Location.class, "Integration Test Metadata Source 1", "mdt-xan");
+		
+		// then
+		Assert.assertNull(location);
+	}
+	
+	@Test
+	@Verifies(value = "return cached item of type without integer id", method = "getMetadataItem(Class, String, String)")
+	public void getMetadataItem_shouldReturnCachedItemOfTypeWithoutIntegerId() {
+		// given
+		Role role = Context.getUserService().getRole("Provider");
+		service.mapMetadataItem(role, "Integration Test Metadata Source 1", "role-provider");
+		service.getMetadataItem(Role.class, "Integration Test Metadata Source 1", "role-provider");
+		
+		// when
+		Role cachedRole = service.getMetadataItem(Role.class, "Integration Test Metadata Source 1", "role-provider");
+		
+		// then
+		Assert.assertEquals(role, cachedRole);
+	}
+	
 	@Test
 	@Verifies(value = "return metadata items of terms matching type", method = "getMetadataItems(Class," + " String)")
 	public void getMetadataItems_shouldReturnMetadataItemsOfTermsMatchingType() {
@@ -1053,6 +1889,40 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals(2, drugs.size());
 	}
 	
+	@Test
+	@Verifies(value = "return items of unretired mappings in the order of mapping ids", method = "getMetadataItems(Class, String)")
+	public void getMetadataItems_shouldReturnItemsOfUnretiredMappingsInTheOrderOfMappingIds() {
+		// given
+		// data in the test data set, and the following
+		MetadataSource metadataSource = new MetadataSource();
+		metadataSource.setName("my-source");
+		service.saveMetadataSource(metadataSource);
+		
+		String location = "org.openmrs.Location";
+		MetadataTermMapping retiredMapping = new MetadataTermMapping(metadataSource, "retired", location,
+		        "6a65bd39-a7be-43c0-b09f-d536026d6ff1");
+		retiredMapping.setRetired(true);
+		retiredMapping.setRetireReason("test");
+		service.saveMetadataTermMappings(Arrays.asList(
+		    new MetadataTermMapping(metadataSource, "pohjola", location, "d3d180c6-d5fb-4202-b1a6-80a06273c158"),
+		    new MetadataTermMapping(metadataSource, "xanadu", location, "9356400c-a5a2-4532-8f2b-2361b3446eb8"),
+		    retiredMapping,
+		    new MetadataTermMapping(metadataSource, "missing", location, "00000000-0000-0000-0000-000000000000"),
+		    new MetadataTermMapping(metadataSource, "no-item", location),
+		    new MetadataTermMapping(metadataSource, "drug", "org.openmrs.Drug", "3cfcf118-931c-46f7-8ff6-7b876f0d4202"),
+		    new MetadataTermMapping(metadataSource, "never-never-land", location,
+		            "167ce20c-4785-4285-9119-d197268f7f4a")));
+		
+		// when
+		List<Location> locations = service.getMetadataItems(Location.class, "my-source");
+		
+		// then
+		Assert.assertEquals(3, locations.size());
+		Assert.assertEquals("Pohjola", locations.get(0).getName());
+		Assert.assertEquals("Xanadu", locations.get(1).getName());
+		Assert.assertEquals("167ce20c-4785-4285-9119-d197268f7f4a", locations.get(2).getUuid());
+	}
+	
 	@Test
 	@Verifies(value = "return nothing if source does not exist", method = "getMetadataItems(Class, String)")
 	public void getMetadataItems_shouldReturnNothingIfSourceDoesNotExist() {
@@ -1066,6 +1936,82 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals(0, locations.size());
 	}
 	
+	@Test
+	@Verifies(value = "return metadata items by code", method = "getMetadataItems(Class, String, Collection)")
+	public void getMetadataItems_shouldReturnMetadataItemsByCode() {
+		// given
+		// data in the test data set
+		
+		// when
+		Map<String, Location> locations = service.getMetadataItems(Location.class, "Integration Test Metadata Source 1",
+		    Arrays.asList("mdt-nnl", "abc", "unknown-code", "mdt-xan"));
+		
+		// then
+		Assert.assertEquals(Arrays.asList("mdt-nnl", "mdt-xan"), new ArrayList<String>(locations.keySet()));
+		Assert.assertEquals("Xanadu", locations.get("mdt-xan").getName());
+		Assert.assertEquals("167ce20c-4785-4285-9119-d197268f7f4a", locations.get("mdt-nnl").getUuid());
+	}
+	
+	@Test(expected = InvalidMetadataTypeException.class)
+	@Verifies(value = "fail on type mismatch", method = "getMetadataItems(Class, String, Collection)")
+	public void getMetadataItems_shouldFailOnTypeMismatch() {
+		// given
+		// data in the test data set
+		
+		// when
+		service.getMetadataItems(Drug.class, "Integration Test Metadata Source 1", Arrays.asList("mdt-xan"));
+		
+		// then
+		// should never get here as the method invocation should have failed
+	}
+	
+	@Test
+	@Verifies(value = "return metadata items of all types by code", method = "getMetadataSourceSnapshot(String)")
+	public void getMetadataSourceSnapshot_shouldReturnMetadataItemsOfAllTypesByCode() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataSourceSnapshot snapshot = service.getMetadataSourceSnapshot("Integration Test Metadata Source 2");
+		
+		// then
+		Assert.assertEquals(Arrays.asList("mdt-nnl", "mdt-xan", "drug-tri", "drug-asp"), new ArrayList<String>(snapshot
+		        .getMetadataItems().keySet()));
+		Assert.assertEquals("Xanadu", snapshot.getMetadataItem(Location.class, "mdt-xan").getName());
+		Assert.assertEquals("3cfcf118-931c-46f7-8ff6-7b876f0d4202", snapshot.getMetadataItem(Drug.class, "drug-tri")
+		        .getUuid());
+		Assert.assertEquals(2, snapshot.getMetadataItems(Drug.class).size());
+	}
+	
+	@Test
+	@Verifies(value = "not include retired terms", method = "getMetadataSourceSnapshot(String)")
+	public void getMetadataSourceSnapshot_shouldNotIncludeRetiredTerms() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataSourceSnapshot snapshot = service.getMetadataSourceSnapshot("Integration Test Metadata Source 1");
+		
+		// then
+		Assert.assertNotNull(snapshot.getMetadataItem(Location.class, "mdt-xan"));
+		Assert.assertNull(snapshot.getMetadataItem(Location.class, "abc"));
+		Assert.assertNull(snapshot.getMetadataItem(Location.class, "xyz"));
+		Assert.assertNotNull(snapshot.getMetadataItem(MetadataSet.class, "location-set"));
+	}
+	
+	@Test
+	@Verifies(value = "return empty snapshot if source does not exist", method = "getMetadataSourceSnapshot(String)")
+	public void getMetadataSourceSnapshot_shouldReturnEmptySnapshotIfSourceDoesNotExist() {
+		// given
+		// data in the test data set
+		
+		// when
+		MetadataSourceSnapshot snapshot = service.getMetadataSourceSnapshot("unknown source");
+		
+		// then
+		Assert.assertTrue(snapshot.getMetadataItems().isEmpty());
+	}
+	
 	@Test
 	@Verifies(value = "save valid new object", method = "saveMetadataSet(MetadataSet)")
 	public void saveMetadataSet_shouldSaveValidNewObject() {
@@ -1152,9 +2098,82 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 			Assert.assertTrue(metadataSetMember.isRetired());
 			Assert.assertNotNull(metadataSetMember.getRetiredBy());
 			Assert.assertEquals("testing the retire method", metadataSetMember.getRetireReason());
+			Assert.assertEquals(metadataSetMember.getRetiredBy(), metadataSetMember.getChangedBy());
+			Assert.assertEquals(metadataSetMember.getDateRetired(), metadataSetMember.getDateChanged());
 		}
 	}
 	
+	@Test
+	@Verifies(value = "not retire members of other sets", method = "retireMetadataSet(MetadataSet, String)")
+	public void retireMetadataSet_shouldNotRetireMembersOfOtherSets() {
+		// given
+		MetadataSet metadataSet = service.getMetadataSet(1);
+		MetadataSetMember otherSetMember = service.getMetadataSetMember(4);
+		Assert.assertFalse(otherSetMember.isRetired());
+		
+		// when
+		service.retireMetadataSet(metadataSet, "testing the retire method");
+		
+		// then
+		Assert.assertFalse(service.getMetadataSetMember(4).isRetired());
+	}
+	
+	@Test
+	@Verifies(value = "get all members page by page", method = "getMetadataSetMembersAfter(MetadataSet, "
+	        + "MetadataSetMember, int, RetiredHandlingMode)")
+	public void getMetadataSetMembersAfter_shouldGetAllMembersPageByPage() {
+		// given
+		MetadataSet metadataSet = service.getMetadataSet(1);
+		MetadataSetMember unweightedMember = new MetadataSetMember();
+		unweightedMember.setMetadataSet(metadataSet);
+		unweightedMember.setMetadataClass(Location.class.getCanonicalName());
+		unweightedMember.setMetadataUuid("167ce20c-4785-4285-9119-d197268f7f4a");
+		service.saveMetadataSetMember(unweightedMember);
+		
+		// when
+		List<Integer> memberIds = new ArrayList<Integer>();
+		MetadataSetMember after = null;
+		while (true) {
+			List<MetadataSetMember> page = service.getMetadataSetMembersAfter(metadataSet, after, 2,
+			    RetiredHandlingMode.ONLY_ACTIVE);
+			for (MetadataSetMember member : page) {
+				memberIds.add(member.getMetadataSetMemberId());
+			}
+			if (page.size() < 2) {
+				break;
+			}
+			after = page.get(page.size() - 1);
+		}
+		
+		// then
+		Assert.assertEquals(Arrays.asList(6, 7, 1, 3, 2, unweightedMember.getMetadataSetMemberId()), memberIds);
+	}
+	
+	@Test
+	@Verifies(value = "not skip members when retiring them page by page", method = "getMetadataSetMembersAfter("
+	        + "MetadataSet, MetadataSetMember, int, RetiredHandlingMode)")
+	public void getMetadataSetMembersAfter_shouldNotSkipMembersWhenRetiringThemPageByPage() {
+		// given
+		MetadataSet metadataSet = service.getMetadataSet(1);
+		
+		// when
+		MetadataSetMember after = null;
+		while (true) {
+			List<MetadataSetMember> page = service.getMetadataSetMembersAfter(metadataSet, after, 2,
+			    RetiredHandlingMode.ONLY_ACTIVE);
+			for (MetadataSetMember member : page) {
+				service.retireMetadataSetMember(member, "retired page by page");
+			}
+			if (page.size() < 2) {
+				break;
+			}
+			after = page.get(page.size() - 1);
+		}
+		
+		// then
+		Assert.assertEquals(0, service.getMetadataSetMembers(metadataSet, RetiredHandlingMode.ONLY_ACTIVE).size());
+	}
+	
 	@Test
 	@Verifies(value = "get members in desired order 1", method = "getMetadataSetMembers(MetadataSet, int, int, "
 	        + "RetiredHandlingMode)")
@@ -1235,6 +2254,49 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 		}.run();
 	}
 	
+	@Test
+	@Verifies(value = "order items like members with equal and null sort weights", method = "getMetadataSetItems(Class, MetadataSet, int, int)")
+	public void getMetadataSetItems_shouldOrderItemsLikeMembersWithEqualAndNullSortWeights() {
+		// given
+		// set 1 has Location members with sort weights 3.0, 2.0 and 1.0, and the following
+		MetadataSet metadataSet = service.getMetadataSet(1);
+		Location tiedLocation = new Location();
+		tiedLocation.setName("Tied");
+		locationService.saveLocation(tiedLocation);
+		MetadataSetMember tiedMember = service.saveMetadataSetMember(metadataSet, tiedLocation);
+		tiedMember.setSortWeight(2.0);
+		service.saveMetadataSetMember(tiedMember);
+		Location unweightedLocation = new Location();
+		unweightedLocation.setName("Unweighted");
+		locationService.saveLocation(unweightedLocation);
+		service.saveMetadataSetMember(metadataSet, unweightedLocation);
+		
+		List<String> memberUuids = new ArrayList<String>();
+		for (MetadataSetMember member : service.getMetadataSetMembers(metadataSet, null, null,
+		    RetiredHandlingMode.ONLY_ACTIVE)) {
+			if (Location.class.getCanonicalName().equals(member.getMetadataClass())) {
+				memberUuids.add(member.getMetadataUuid());
+			}
+		}
+		
+		// when
+		List<Location> items = service.getMetadataSetItems(Location.class, metadataSet, null, null);
+		List<Location> secondPage = service.getMetadataSetItems(Location.class, metadataSet, 3, 2);
+		List<Location> lastPage = service.getMetadataSetItems(Location.class, metadataSet, 4, 2);
+		
+		// then
+		List<String> itemUuids = new ArrayList<String>();
+		for (Location item : items) {
+			itemUuids.add(item.getUuid());
+		}
+		Assert.assertEquals(Arrays.asList("9356400c-a5a2-4532-8f2b-2361b3446eb8", tiedLocation.getUuid(),
+		    "d3d180c6-d5fb-4202-b1a6-80a06273c158", "6a65bd39-a7be-43c0-b09f-d536026d6ff1",
+		    unweightedLocation.getUuid()), itemUuids);
+		Assert.assertEquals(memberUuids, itemUuids);
+		Assert.assertEquals(Arrays.asList(items.get(3), items.get(4)), secondPage);
+		Assert.assertEquals(Arrays.asList(items.get(4)), lastPage);
+	}
+	
 	@Test(expected = IllegalArgumentException.class)
 	@Verifies(value = "throw IllegalArgumentException if set does not exist", method = "getMetadataSetItems(Class, MetadataSet, int, int)")
 	public void getMetadataSetItems_shouldThrowExceptionIfMetadataSetDoesNotExist() throws Exception {
@@ -1399,4 +2461,36 @@ public class MetadataMappingServiceTest extends BaseModuleContextSensitiveTest {
 			Assert.assertEquals("Väinölä", locationIterator.next().getName());
 		}
 	}
+	
+	/**
+	 * Records the requested propagation behaviors and runs all transactions in the current one.
+	 */
+	private static class RecordingTransactionManager implements PlatformTransactionManager {
+		
+		private final PlatformTransactionManager delegate;
+		
+		private final List<Integer> propagationBehaviors = new ArrayList<Integer>();
+		
+		public RecordingTransactionManager(PlatformTransactionManager delegate) {
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			propagationBehaviors.add(definition.getPropagationBehavior());
+			DefaultTransactionDefinition participatingDefinition = new DefaultTransactionDefinition(definition);
+			participatingDefinition.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+			return delegate.getTransaction(participatingDefinition);
+		}
+		
+		@Override
+		public void commit(TransactionStatus status) {
+			delegate.commit(status);
+		}
+		
+		@Override
+		public void rollback(TransactionStatus status) {
+			delegate.rollback(status);
+		}
+	}
 }
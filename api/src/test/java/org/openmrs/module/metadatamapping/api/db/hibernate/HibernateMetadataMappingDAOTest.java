@@ -0,0 +1,144 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.db.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.metadatamapping.MetadataSource;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link HibernateMetadataMappingDAO}
+ * <p>
+ * Queries are counted as prepared statements with the statistics of the session factory.
+ */
+public class HibernateMetadataMappingDAOTest extends BaseModuleContextSensitiveTest {
+	
+	private static final String SOURCE_1_UUID = "df29a160-0add-4598-8ac2-b11a9eb3cdb8";
+	
+	private static final String SOURCE_2_UUID = "9cace0bd-6f2a-4cc3-a26d-6fa292f1f2c1";
+	
+	@Autowired
+	@Qualifier("metadatamapping.MetadataMappingDAO")
+	private MetadataMappingDAO metadataMappingDAO;
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
+	private HibernateMetadataMappingDAO dao;
+	
+	private Statistics statistics;
+	
+	private boolean statisticsEnabled;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet("metadataMappingInMemoryTestDataSet.xml");
+		dao = AopTestUtils.getUltimateTargetObject(metadataMappingDAO);
+		
+		statistics = sessionFactory.getStatistics();
+		statisticsEnabled = statistics.isStatisticsEnabled();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+	}
+	
+	@After
+	public void restoreStatistics() {
+		statistics.setStatisticsEnabled(statisticsEnabled);
+	}
+	
+	@Test
+	public void internalGetByUuids_shouldRunOneQueryForAFullChunk() {
+		//given
+		List<String> uuids = randomUuids(HibernateMetadataMappingDAO.MAX_IN_PARAMETERS);
+		uuids.set(0, SOURCE_1_UUID);
+		uuids.set(uuids.size() - 1, SOURCE_2_UUID);
+		
+		//when
+		Map<String, MetadataSource> sourcesByUuid = dao.internalGetByUuids(MetadataSource.class, uuids);
+		
+		//then
+		assertThat(statistics.getPrepareStatementCount(), is(1L));
+		assertThat(sourcesByUuid.size(), is(2));
+		assertThat(sourcesByUuid.get(SOURCE_1_UUID).getMetadataSourceId(), is(1));
+		assertThat(sourcesByUuid.get(SOURCE_2_UUID).getMetadataSourceId(), is(2));
+	}
+	
+	@Test
+	public void internalGetByUuids_shouldRunAnotherQueryForTheUuidAfterAFullChunk() {
+		//given
+		List<String> uuids = randomUuids(HibernateMetadataMappingDAO.MAX_IN_PARAMETERS + 1);
+		uuids.set(0, SOURCE_1_UUID);
+		uuids.set(uuids.size() - 1, SOURCE_2_UUID);
+		
+		//when
+		Map<String, MetadataSource> sourcesByUuid = dao.internalGetByUuids(MetadataSource.class, uuids);
+		
+		//then
+		assertThat(statistics.getPrepareStatementCount(), is(2L));
+		assertThat(sourcesByUuid.size(), is(2));
+		assertThat(sourcesByUuid.get(SOURCE_1_UUID).getMetadataSourceId(), is(1));
+		assertThat(sourcesByUuid.get(SOURCE_2_UUID).getMetadataSourceId(), is(2));
+	}
+	
+	@Test
+	public void internalGetByUuids_shouldQueryDuplicateUuidsOnce() {
+		//given
+		List<String> uuids = randomUuids(HibernateMetadataMappingDAO.MAX_IN_PARAMETERS);
+		uuids.add(uuids.get(0));
+		
+		//when
+		Map<String, MetadataSource> sourcesByUuid = dao.internalGetByUuids(MetadataSource.class, uuids);
+		
+		//then
+		assertThat(statistics.getPrepareStatementCount(), is(1L));
+		assertThat(sourcesByUuid.isEmpty(), is(true));
+	}
+	
+	@Test
+	public void internalGetByUuids_shouldNotRunAnyQueryForNoUuids() {
+		//when
+		Map<String, MetadataSource> sourcesByUuid = dao.internalGetByUuids(MetadataSource.class,
+		    Collections.<String> emptyList());
+		
+		//then
+		assertThat(statistics.getPrepareStatementCount(), is(0L));
+		assertThat(sourcesByUuid.isEmpty(), is(true));
+	}
+	
+	private List<String> randomUuids(int count) {
+		List<String> uuids = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			uuids.add(UUID.randomUUID().toString());
+		}
+		return uuids;
+	}
+}
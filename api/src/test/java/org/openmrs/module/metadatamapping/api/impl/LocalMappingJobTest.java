@@ -0,0 +1,196 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.impl;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptSource;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.ConceptService;
+import org.openmrs.module.metadatamapping.MetadataMapping;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus.State;
+import org.openmrs.module.metadatamapping.api.db.MetadataMappingDAO;
+import org.openmrs.module.metadatamapping.api.wrapper.ConceptAdapter;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link LocalMappingJob}
+ * <p>
+ * The job is run in the test thread and its batches join the test transaction, so that they are rolled back after each
+ * test.
+ */
+public class LocalMappingJobTest extends BaseModuleContextSensitiveTest {
+	
+	private static final int BATCH_SIZE = 2;
+	
+	@Autowired
+	@Qualifier("adminService")
+	private AdministrationService adminService;
+	
+	@Autowired
+	@Qualifier("conceptService")
+	private ConceptService conceptService;
+	
+	@Autowired
+	@Qualifier("metadatamapping.ConceptAdapter")
+	private ConceptAdapter conceptAdapter;
+	
+	@Autowired
+	@Qualifier("metadatamapping.MetadataMappingDAO")
+	private MetadataMappingDAO dao;
+	
+	@Autowired
+	@Qualifier("transactionManager")
+	private PlatformTransactionManager transactionManager;
+	
+	private ConceptSource localConceptSource;
+	
+	private List<Integer> conceptIds;
+	
+	@Before
+	public void setupLocalConceptSource() {
+		localConceptSource = new ConceptSource();
+		localConceptSource.setName("my-dict");
+		localConceptSource.setDescription("Description");
+		conceptService.saveConceptSource(localConceptSource);
+		
+		adminService.saveGlobalProperty(new GlobalProperty(MetadataMapping.GP_LOCAL_SOURCE_UUID, localConceptSource
+		        .getUuid()));
+		
+		conceptIds = new ArrayList<Integer>();
+		for (Concept concept : conceptService.getAllConcepts()) {
+			conceptIds.add(concept.getConceptId());
+		}
+		Collections.sort(conceptIds);
+	}
+	
+	@Test
+	public void run_shouldAddLocalMappingsToAllConceptsAndAdvanceCheckpoint() {
+		//given
+		LocalMappingJob job = new LocalMappingJob();
+		
+		//when
+		job.run(transactionManager, dao, null, 0, conceptIds.size(), BATCH_SIZE);
+		
+		//then
+		LocalMappingJobStatus status = job.getStatus();
+		assertThat(status.getState(), is(State.COMPLETED));
+		assertThat(status.getProcessedConcepts(), is((long) conceptIds.size()));
+		assertThat(LocalMappingJob.getCheckpoint(adminService), is(lastConceptId()));
+		for (Integer conceptId : conceptIds) {
+			Assert.assertTrue(hasLocalMapping(conceptId));
+		}
+	}
+	
+	@Test
+	public void run_shouldContinueAfterCheckpointWhenResumed() {
+		//given
+		LocalMappingJob pausingJob = new LocalMappingJob() {
+			
+			@Override
+			synchronized void batchProcessed(Integer batchLastConceptId, long batchConcepts) {
+				super.batchProcessed(batchLastConceptId, batchConcepts);
+				pause();
+			}
+		};
+		pausingJob.run(transactionManager, dao, null, 0, conceptIds.size(), BATCH_SIZE);
+		
+		LocalMappingJobStatus pausedStatus = pausingJob.getStatus();
+		assertThat(pausedStatus.getState(), is(State.PAUSED));
+		assertThat(pausedStatus.getProcessedConcepts(), is((long) BATCH_SIZE));
+		Integer checkpoint = LocalMappingJob.getCheckpoint(adminService);
+		assertThat(checkpoint, is(conceptIds.get(BATCH_SIZE - 1)));
+		Assert.assertFalse(hasLocalMapping(conceptIds.get(BATCH_SIZE)));
+		
+		final List<Integer> batchLastConceptIds = new ArrayList<Integer>();
+		LocalMappingJob resumedJob = new LocalMappingJob() {
+			
+			@Override
+			synchronized void batchProcessed(Integer batchLastConceptId, long batchConcepts) {
+				super.batchProcessed(batchLastConceptId, batchConcepts);
+				batchLastConceptIds.add(batchLastConceptId);
+			}
+		};
+		
+		//when
+		resumedJob.run(transactionManager, dao, checkpoint, pausedStatus.getProcessedConcepts(), conceptIds.size(),
+		    BATCH_SIZE);
+		
+		//then
+		LocalMappingJobStatus status = resumedJob.getStatus();
+		assertThat(status.getState(), is(State.COMPLETED));
+		assertThat(status.getProcessedConcepts(), is((long) conceptIds.size()));
+		assertThat(batchLastConceptIds.get(0), is(conceptIds.get(Math.min(2 * BATCH_SIZE, conceptIds.size()) - 1)));
+		for (Integer batchLastConceptId : batchLastConceptIds) {
+			assertThat(batchLastConceptId, greaterThan(checkpoint));
+		}
+		assertThat(LocalMappingJob.getCheckpoint(adminService), is(lastConceptId()));
+		for (Integer conceptId : conceptIds) {
+			Assert.assertTrue(hasLocalMapping(conceptId));
+		}
+	}
+	
+	@Test
+	public void run_shouldFailAndKeepCheckpointIfBatchFails() {
+		//given
+		LocalMappingJob job = new LocalMappingJob() {
+			
+			@Override
+			synchronized void batchProcessed(Integer batchLastConceptId, long batchConcepts) {
+				super.batchProcessed(batchLastConceptId, batchConcepts);
+				// the next batch fails, because the local source is no longer configured
+				GlobalProperty localSource = adminService.getGlobalPropertyObject(MetadataMapping.GP_LOCAL_SOURCE_UUID);
+				localSource.setPropertyValue("");
+				adminService.saveGlobalProperty(localSource);
+			}
+		};
+		
+		//when
+		job.run(transactionManager, dao, null, 0, conceptIds.size(), BATCH_SIZE);
+		
+		//then
+		LocalMappingJobStatus status = job.getStatus();
+		assertThat(status.getState(), is(State.FAILED));
+		assertThat(status.getErrorMessage(), is(notNullValue()));
+		assertThat(status.getLastConceptId(), is(conceptIds.get(BATCH_SIZE - 1)));
+		assertThat(LocalMappingJob.getCheckpoint(adminService), is(conceptIds.get(BATCH_SIZE - 1)));
+		Assert.assertTrue(hasLocalMapping(conceptIds.get(BATCH_SIZE - 1)));
+		Assert.assertFalse(hasLocalMapping(conceptIds.get(BATCH_SIZE)));
+	}
+	
+	private Integer lastConceptId() {
+		return conceptIds.get(conceptIds.size() - 1);
+	}
+	
+	private boolean hasLocalMapping(Integer conceptId) {
+		Concept concept = conceptService.getConcept(conceptId);
+		return conceptAdapter.hasMapping(concept, localConceptSource, conceptId.toString());
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.api.wrapper;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link ConceptAdapter}
+ */
+public class ConceptAdapterTest extends BaseModuleContextSensitiveTest {
+	
+	@Autowired
+	@Qualifier("conceptService")
+	private ConceptService conceptService;
+	
+	@Autowired
+	@Qualifier("metadatamapping.ConceptAdapter")
+	private ConceptAdapter conceptAdapter;
+	
+	private ConceptSource source;
+	
+	@Before
+	public void setupConceptSource() {
+		source = new ConceptSource();
+		source.setName("my-dict");
+		source.setDescription("Description");
+		conceptService.saveConceptSource(source);
+	}
+	
+	@Test
+	public void addMappings_shouldCreateTermsAndMappingsForAllConcepts() {
+		//given
+		List<Concept> concepts = conceptService.getAllConcepts().subList(0, 3);
+		
+		//when
+		conceptAdapter.addMappings(concepts, source);
+		
+		//then
+		Context.clearSession();
+		for (Concept concept : concepts) {
+			String code = concept.getConceptId().toString();
+			ConceptReferenceTerm term = conceptService.getConceptReferenceTermByCode(code, source);
+			Assert.assertNotNull(term);
+			Assert.assertNotNull(term.getCreator());
+			Concept reloadedConcept = conceptService.getConcept(concept.getConceptId());
+			Assert.assertTrue(conceptAdapter.hasMapping(reloadedConcept, source, code));
+		}
+	}
+	
+	@Test
+	public void addMappings_shouldReuseExistingTerm() {
+		//given
+		ConceptReferenceTerm existingTerm = new ConceptReferenceTerm(source, "3", null);
+		conceptService.saveConceptReferenceTerm(existingTerm);
+		Concept concept = conceptService.getConcept(3);
+		
+		//when
+		conceptAdapter.addMappings(Arrays.asList(concept), source);
+		
+		//then
+		Context.clearSession();
+		concept = conceptService.getConcept(3);
+		int mapsToSource = 0;
+		for (ConceptMap map : concept.getConceptMappings()) {
+			if (source.equals(map.getConceptReferenceTerm().getConceptSource())) {
+				Assert.assertEquals(existingTerm.getUuid(), map.getConceptReferenceTerm().getUuid());
+				mapsToSource++;
+			}
+		}
+		Assert.assertEquals(1, mapsToSource);
+	}
+	
+	@Test
+	public void retireMappings_shouldRetireOnlyTermsTheConceptsAreMappedTo() {
+		//given
+		Concept mappedConcept = conceptService.getConcept(3);
+		conceptAdapter.addMappings(Arrays.asList(mappedConcept), source);
+		Concept unmappedConcept = conceptService.getConcept(5);
+		ConceptReferenceTerm unmappedTerm = new ConceptReferenceTerm(source, "5", null);
+		conceptService.saveConceptReferenceTerm(unmappedTerm);
+		
+		//when
+		int retiredTerms = conceptAdapter.retireMappings(Arrays.asList(mappedConcept, unmappedConcept), source);
+		
+		//then
+		Assert.assertEquals(1, retiredTerms);
+		ConceptReferenceTerm mappedTerm = conceptService.getConceptReferenceTermByCode("3", source);
+		Assert.assertTrue(mappedTerm.isRetired());
+		Assert.assertNotNull(mappedTerm.getRetiredBy());
+		Assert.assertFalse(unmappedTerm.isRetired());
+	}
+	
+	@Test
+	public void unretireMappings_shouldUnretireOnlyTermsTheConceptsAreMappedTo() {
+		//given
+		Concept mappedConcept = conceptService.getConcept(3);
+		conceptAdapter.addMappings(Arrays.asList(mappedConcept), source);
+		ConceptReferenceTerm mappedTerm = conceptService.getConceptReferenceTermByCode("3", source);
+		conceptService.retireConceptReferenceTerm(mappedTerm, "Testing...");
+		Concept unmappedConcept = conceptService.getConcept(5);
+		ConceptReferenceTerm unmappedTerm = new ConceptReferenceTerm(source, "5", null);
+		conceptService.saveConceptReferenceTerm(unmappedTerm);
+		conceptService.retireConceptReferenceTerm(unmappedTerm, "Testing...");
+		
+		//when
+		int unretiredTerms = conceptAdapter.unretireMappings(Arrays.asList(mappedConcept, unmappedConcept), source);
+		
+		//then
+		Assert.assertEquals(1, unretiredTerms);
+		Assert.assertFalse(mappedTerm.isRetired());
+		Assert.assertNull(mappedTerm.getRetiredBy());
+		Assert.assertTrue(unmappedTerm.isRetired());
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.api.LocalMappingJobStatus;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import static org.openmrs.module.metadatamapping.web.controller.MetadataMappingRestController.METADATA_MAPPING_REST_NAMESPACE;
+
+/**
+ * Controls the background job adding local mappings to concepts.
+ * <p>
+ * GET returns the progress of the job. POST with an action of start, pause or resume changes the state of the job
+ * and returns its progress.
+ * @since 2.1.0
+ */
+@Controller
+@RequestMapping("/rest/" + RestConstants.VERSION_1 + METADATA_MAPPING_REST_NAMESPACE + "/localmappingjob")
+public class LocalMappingJobController extends BaseRestController {
+	
+	public static final String PARAM_ACTION = "action";
+	
+	public static final String ACTION_START = "start";
+	
+	public static final String ACTION_PAUSE = "pause";
+	
+	public static final String ACTION_RESUME = "resume";
+	
+	@RequestMapping(method = RequestMethod.GET)
+	@ResponseBody
+	public SimpleObject getStatus() {
+		return toSimpleObject(getService().getLocalMappingJobStatus());
+	}
+	
+	@RequestMapping(method = RequestMethod.POST)
+	@ResponseBody
+	public SimpleObject changeState(@RequestBody SimpleObject request) {
+		Object action = request.get(PARAM_ACTION);
+		LocalMappingJobStatus status;
+		if (ACTION_START.equals(action)) {
+			status = getService().startLocalMappingJob();
+		} else if (ACTION_PAUSE.equals(action)) {
+			status = getService().pauseLocalMappingJob();
+		} else if (ACTION_RESUME.equals(action)) {
+			status = getService().resumeLocalMappingJob();
+		} else {
+			throw new IllegalRequestException("The " + PARAM_ACTION + " must be one of " + ACTION_START + ", "
+			        + ACTION_PAUSE + " or " + ACTION_RESUME);
+		}
+		return toSimpleObject(status);
+	}
+	
+	private SimpleObject toSimpleObject(LocalMappingJobStatus status) {
+		SimpleObject simpleObject = new SimpleObject();
+		simpleObject.add("state", status.getState().name());
+		simpleObject.add("processed", status.getProcessedConcepts());
+		simpleObject.add("total", status.getTotalConcepts());
+		simpleObject.add("lastConceptId", status.getLastConceptId());
+		simpleObject.add("rate", status.getConceptsPerSecond());
+		simpleObject.add("errorMessage", status.getErrorMessage());
+		return simpleObject;
+	}
+	
+	private MetadataMappingService getService() {
+		return Context.getService(MetadataMappingService.class);
+	}
+}
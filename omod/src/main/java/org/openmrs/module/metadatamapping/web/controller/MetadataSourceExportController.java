@@ -0,0 +1,85 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.MetadataSource;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingFormat;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.openmrs.module.metadatamapping.web.controller.MetadataMappingRestController.METADATA_MAPPING_REST_NAMESPACE;
+
+/**
+ * Streams all term mappings of a metadata source with the members of referred sets in a single response.
+ * <p>
+ * GET with the name or uuid of the source and an optional format of json (default) or csv returns the table as
+ * written by {@link MetadataMappingService#exportMetadataTermMappings}.
+ * @since 2.1.0
+ */
+@Controller
+@RequestMapping("/rest/" + RestConstants.VERSION_1 + METADATA_MAPPING_REST_NAMESPACE + "/export")
+public class MetadataSourceExportController extends BaseRestController {
+	
+	public static final String PARAM_SOURCE = "source";
+	
+	public static final String PARAM_FORMAT = "format";
+	
+	@RequestMapping(method = RequestMethod.GET)
+	public void export(@RequestParam(PARAM_SOURCE) String metadataSourceNameOrUuid,
+	        @RequestParam(value = PARAM_FORMAT, required = false) String formatName, HttpServletResponse response)
+	        throws IOException {
+		MetadataSource metadataSource = getService().getMetadataSourceByUuid(metadataSourceNameOrUuid);
+		if (metadataSource == null) {
+			metadataSource = getService().getMetadataSourceByName(metadataSourceNameOrUuid);
+		}
+		if (metadataSource == null) {
+			throw new ObjectNotFoundException();
+		}
+		
+		MetadataTermMappingFormat format = getFormat(formatName);
+		response.setContentType(format.getContentType());
+		response.setCharacterEncoding("UTF-8");
+		Writer writer = response.getWriter();
+		getService().exportMetadataTermMappings(metadataSource, writer, format);
+		writer.flush();
+	}
+	
+	private MetadataTermMappingFormat getFormat(String formatName) {
+		if (formatName == null) {
+			return MetadataTermMappingFormat.JSON;
+		}
+		for (MetadataTermMappingFormat format : MetadataTermMappingFormat.values()) {
+			if (format.name().equalsIgnoreCase(formatName)) {
+				return format;
+			}
+		}
+		throw new IllegalRequestException("The " + PARAM_FORMAT + " must be one of json or csv");
+	}
+	
+	private MetadataMappingService getService() {
+		return Context.getService(MetadataMappingService.class);
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImportResult;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingRow;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.openmrs.module.metadatamapping.web.controller.MetadataMappingRestController.METADATA_MAPPING_REST_NAMESPACE;
+
+/**
+ * Creates or updates many term mappings in a single request and transaction.
+ * <p>
+ * POST with an array of objects with the properties source (name), code, metadataClass, metadataUuid and the optional
+ * retired returns the numbers of created, updated and unchanged mappings and the result of every object in the order of
+ * the request. Invalid objects are reported in the results and do not prevent the others from being saved.
+ * @since 2.1.0
+ */
+@Controller
+@RequestMapping("/rest/" + RestConstants.VERSION_1 + METADATA_MAPPING_REST_NAMESPACE + "/termmapping/bulk")
+public class MetadataTermMappingBulkController extends BaseRestController {
+	
+	@RequestMapping(method = RequestMethod.POST)
+	@ResponseBody
+	public SimpleObject save(@RequestBody List<Map<String, Object>> mappings) {
+		if (mappings == null || mappings.isEmpty()) {
+			throw new IllegalRequestException("The request must be a non-empty array of term mappings");
+		}
+		
+		List<MetadataTermMappingRow> rows = new ArrayList<MetadataTermMappingRow>(mappings.size());
+		for (Map<String, Object> mapping : mappings) {
+			String metadataSourceName = getValue(mapping, MetadataTermMappingRow.SOURCE);
+			String code = getValue(mapping, MetadataTermMappingRow.CODE);
+			String metadataClass = getValue(mapping, MetadataTermMappingRow.METADATA_CLASS);
+			String metadataUuid = getValue(mapping, MetadataTermMappingRow.METADATA_UUID);
+			String retired = getValue(mapping, MetadataTermMappingRow.RETIRED);
+			rows.add(new MetadataTermMappingRow(rows.size() + 1, metadataSourceName, code, metadataClass, metadataUuid,
+			        retired));
+		}
+		
+		return toSimpleObject(getService().importMetadataTermMappings(rows));
+	}
+	
+	private String getValue(Map<String, Object> mapping, String property) {
+		Object value = mapping == null ? null : mapping.get(property);
+		return value == null ? null : StringUtils.trimToNull(value.toString());
+	}
+	
+	private SimpleObject toSimpleObject(MetadataTermMappingImportResult result) {
+		List<SimpleObject> rowResults = new ArrayList<SimpleObject>();
+		for (MetadataTermMappingImportResult.RowResult rowResult : result.getRowResults()) {
+			SimpleObject simpleRowResult = new SimpleObject();
+			simpleRowResult.add("index", rowResult.getRowNumber() - 1);
+			simpleRowResult.add("status", rowResult.getStatus().name().toLowerCase());
+			simpleRowResult.add("uuid", rowResult.getMetadataTermMappingUuid());
+			simpleRowResult.add("message", rowResult.getMessage());
+			rowResults.add(simpleRowResult);
+		}
+		
+		SimpleObject simpleObject = new SimpleObject();
+		simpleObject.add("created", result.getCreatedCount());
+		simpleObject.add("updated", result.getUpdatedCount());
+		simpleObject.add("unchanged", result.getUnchangedCount());
+		simpleObject.add("errors", result.getErrorCount());
+		simpleObject.add("results", rowResults);
+		return simpleObject;
+	}
+	
+	private MetadataMappingService getService() {
+		return Context.getService(MetadataMappingService.class);
+	}
+}
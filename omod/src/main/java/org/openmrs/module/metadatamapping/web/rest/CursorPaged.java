@@ -0,0 +1,44 @@
+package org.openmrs.module.metadatamapping.web.rest;
+
+import java.util.List;
+
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.Converter;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
+import org.openmrs.module.webservices.rest.web.response.ResponseException;
+
+/**
+ * Page of results, which additionally exposes an opaque cursor to request the next page with.
+ * @param <T> type of the results
+ * @since 2.1.0
+ */
+public class CursorPaged<T> extends AlreadyPaged<T> {
+	
+	public static final String PARAM_CURSOR = "cursor";
+	
+	public static final String PROPERTY_NEXT_CURSOR = "nextCursor";
+	
+	private final String nextCursor;
+	
+	/**
+	 * @param context request context
+	 * @param results page of results
+	 * @param hasMoreResults whether there are more results after this page
+	 * @param nextCursor cursor of the next page, ignored if there are no more results
+	 */
+	public CursorPaged(RequestContext context, List<T> results, boolean hasMoreResults, String nextCursor) {
+		super(context, results, hasMoreResults);
+		this.nextCursor = nextCursor;
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public SimpleObject toSimpleObject(Converter preferredConverter) throws ResponseException {
+		SimpleObject simpleObject = super.toSimpleObject(preferredConverter);
+		if (hasMoreResults() && nextCursor != null) {
+			simpleObject.add(PROPERTY_NEXT_CURSOR, nextCursor);
+		}
+		return simpleObject;
+	}
+}
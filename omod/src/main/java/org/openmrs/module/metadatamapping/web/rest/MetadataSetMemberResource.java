@@ -5,6 +5,7 @@ import io.swagger.models.ModelImpl;
 import io.swagger.models.properties.BooleanProperty;
 import io.swagger.models.properties.RefProperty;
 import io.swagger.models.properties.StringProperty;
+import org.apache.commons.lang3.StringUtils;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.metadatamapping.MetadataSet;
 import org.openmrs.module.metadatamapping.MetadataSetMember;
@@ -20,13 +21,15 @@ import org.openmrs.module.webservices.rest.web.representation.FullRepresentation
 import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingSubResource;
 import org.openmrs.module.webservices.rest.web.response.ConversionException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 
@@ -60,13 +63,49 @@ public class MetadataSetMemberResource extends DelegatingSubResource<MetadataSet
 			mode = RetiredHandlingMode.INCLUDE_RETIRED;
 		}
 		
+		String cursor = context.getParameter(CursorPaged.PARAM_CURSOR);
+		String startIndex = context.getParameter(RestConstants.REQUEST_PROPERTY_FOR_START_INDEX);
 		boolean hasMore = false;
-		List<MetadataSetMember> results = getService().getMetadataSetMembers(parent, firstResult, maxResults + 1, mode);
+		List<MetadataSetMember> results;
+		if (StringUtils.isNotBlank(startIndex) && StringUtils.isBlank(cursor)) {
+			results = getService().getMetadataSetMembers(parent, firstResult, maxResults + 1, mode);
+		} else {
+			// Pages are read with a keyset unless an explicit start index is requested, so that deep pages do not make
+			// the database skip the members of previous pages
+			MetadataSetMember after = StringUtils.isBlank(cursor) ? null : decodeCursor(parent, cursor);
+			results = getService().getMetadataSetMembersAfter(parent, after, maxResults + 1, mode);
+		}
+		
+		String nextCursor = null;
 		if (results.size() > maxResults) {
 			hasMore = true;
 			results = results.subList(0, maxResults);
+			nextCursor = encodeCursor(results.get(results.size() - 1));
+		}
+		return new CursorPaged<MetadataSetMember>(context, results, hasMore, nextCursor);
+	}
+	
+	private String encodeCursor(MetadataSetMember lastMetadataSetMember) {
+		String cursor = lastMetadataSetMember.getMetadataSetMemberId().toString();
+		return Base64.getUrlEncoder().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * @throws IllegalRequestException if the cursor does not point to a member of the given set
+	 */
+	private MetadataSetMember decodeCursor(MetadataSet parent, String cursor) {
+		MetadataSetMember after = null;
+		try {
+			String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			after = getService().getMetadataSetMember(Integer.valueOf(id));
+		}
+		catch (IllegalArgumentException e) {
+			// NumberFormatException is an IllegalArgumentException as well
+		}
+		if (after == null || !parent.equals(after.getMetadataSet())) {
+			throw new IllegalRequestException("Invalid " + CursorPaged.PARAM_CURSOR + " parameter: " + cursor);
 		}
-		return new AlreadyPaged<MetadataSetMember>(context, results, hasMore);
+		return after;
 	}
 	
 	@Override
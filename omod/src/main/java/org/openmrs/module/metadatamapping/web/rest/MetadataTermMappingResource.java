@@ -1,6 +1,7 @@
 package org.openmrs.module.metadatamapping.web.rest;
 
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 import io.swagger.models.Model;
@@ -10,7 +11,6 @@ import io.swagger.models.properties.RefProperty;
 import io.swagger.models.properties.StringProperty;
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.api.context.Context;
-import org.openmrs.module.metadatamapping.MetadataSource;
 import org.openmrs.module.metadatamapping.MetadataTermMapping;
 import org.openmrs.module.metadatamapping.api.MetadataMappingService;
 import org.openmrs.module.metadatamapping.api.MetadataTermMappingSearchCriteria;
@@ -24,9 +24,9 @@ import org.openmrs.module.webservices.rest.web.representation.DefaultRepresentat
 import org.openmrs.module.webservices.rest.web.representation.FullRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
 import org.openmrs.module.webservices.rest.web.resource.impl.MetadataDelegatingCrudResource;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 
@@ -190,17 +190,8 @@ public class MetadataTermMappingResource extends MetadataDelegatingCrudResource<
 		
 		String metadataSourceNameOrUuid = context.getParameter(PARAM_SOURCE_NAME_OR_UUID);
 		if (StringUtils.isNotBlank(metadataSourceNameOrUuid)) {
-			MetadataSource metadataSource = getService().getMetadataSourceByUuid(metadataSourceNameOrUuid);
-			if (metadataSource == null) {
-				metadataSource = getService().getMetadataSourceByName(metadataSourceNameOrUuid);
-			}
-			
-			if (metadataSource == null) {
-				// NOTE: Short circuit to empty search result when given metadata source does not exist.
-				return new AlreadyPaged<MetadataTermMapping>(context, Collections.<MetadataTermMapping> emptyList(), false);
-			} else {
-				searchCriteriaBuilder.setMetadataSource(metadataSource);
-			}
+			// The source is matched in the search query, which returns nothing if the source does not exist
+			searchCriteriaBuilder.setMetadataSourceNameOrUuid(metadataSourceNameOrUuid);
 		}
 		
 		String metadataTermCode = context.getParameter(PARAM_TERM_CODE);
@@ -241,16 +232,45 @@ public class MetadataTermMappingResource extends MetadataDelegatingCrudResource<
 			maxResults = 10;
 		}
 		
+		String cursor = context.getParameter(CursorPaged.PARAM_CURSOR);
+		if (StringUtils.isNotBlank(cursor)) {
+			// The cursor replaces the start index, so that deep pages do not make the database skip previous rows
+			Integer[] after = decodeCursor(cursor);
+			searchCriteriaBuilder.setAfter(after[0], after[1]);
+			firstResult = 0;
+		}
+		
 		boolean hasMore = false;
 		searchCriteriaBuilder.setFirstResult(firstResult).setMaxResults(maxResults + 1);
 		
 		List<MetadataTermMapping> metadataTermMappings = getService().getMetadataTermMappings(searchCriteriaBuilder.build());
+		String nextCursor = null;
 		if (metadataTermMappings.size() > maxResults) {
 			hasMore = true;
 			metadataTermMappings = metadataTermMappings.subList(0, maxResults);
+			nextCursor = encodeCursor(metadataTermMappings.get(metadataTermMappings.size() - 1));
 		}
 		
-		return new AlreadyPaged<MetadataTermMapping>(context, metadataTermMappings, hasMore);
+		return new CursorPaged<MetadataTermMapping>(context, metadataTermMappings, hasMore, nextCursor);
+	}
+	
+	private String encodeCursor(MetadataTermMapping lastMetadataTermMapping) {
+		String cursor = lastMetadataTermMapping.getMetadataSource().getMetadataSourceId() + ":"
+		        + lastMetadataTermMapping.getMetadataTermMappingId();
+		return Base64.getUrlEncoder().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private Integer[] decodeCursor(String cursor) {
+		try {
+			String[] ids = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+			if (ids.length == 2) {
+				return new Integer[] { Integer.valueOf(ids[0]), Integer.valueOf(ids[1]) };
+			}
+		}
+		catch (IllegalArgumentException e) {
+			// NumberFormatException is an IllegalArgumentException as well
+		}
+		throw new IllegalRequestException("Invalid " + CursorPaged.PARAM_CURSOR + " parameter: " + cursor);
 	}
 	
 	private MetadataMappingService getService() {
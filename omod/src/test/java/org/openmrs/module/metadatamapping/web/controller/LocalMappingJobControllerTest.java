@@ -0,0 +1,131 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.impl.LocalMappingJob;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+
+/**
+ * Tests changing the state of the background job adding local mappings.
+ * <p>
+ * The daemon thread is started only after the test transaction commits, thus a started job stays running during a
+ * test and returns to its previous state when the transaction is rolled back.
+ */
+public class LocalMappingJobControllerTest extends BaseModuleWebContextSensitiveTest {
+	
+	private LocalMappingJobController controller;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet("metadataMappingInMemoryTestDataSet.xml");
+		controller = new LocalMappingJobController();
+	}
+	
+	@After
+	public void clearDaemonToken() {
+		LocalMappingJob.setDaemonToken(null);
+	}
+	
+	@Test
+	public void getStatus_shouldReturnIdleStatusIfJobWasNotStarted() throws Exception {
+		// when
+		SimpleObject status = controller.getStatus();
+		
+		// then
+		assertEquals("IDLE", status.get("state"));
+		assertEquals(0L, status.get("processed"));
+		assertNull(status.get("errorMessage"));
+	}
+	
+	@Test
+	public void changeState_shouldStartJobAndClearCheckpoint() throws Exception {
+		// given
+		setupLocalConceptSource();
+		LocalMappingJob.setDaemonToken(new DaemonToken("metadatamapping"));
+		LocalMappingJob.saveCheckpoint(Context.getAdministrationService(), 5);
+		
+		// when
+		SimpleObject status = controller.changeState(action(LocalMappingJobController.ACTION_START));
+		
+		// then
+		assertEquals("RUNNING", status.get("state"));
+		assertEquals(0L, status.get("processed"));
+		assertEquals(Context.getConceptService().getAllConcepts().size(), ((Long) status.get("total")).intValue());
+		assertNull(LocalMappingJob.getCheckpoint(Context.getAdministrationService()));
+	}
+	
+	@Test
+	public void changeState_shouldKeepCheckpointIfJobIsAlreadyRunning() throws Exception {
+		// given
+		setupLocalConceptSource();
+		LocalMappingJob.setDaemonToken(new DaemonToken("metadatamapping"));
+		controller.changeState(action(LocalMappingJobController.ACTION_START));
+		LocalMappingJob.saveCheckpoint(Context.getAdministrationService(), 5);
+		
+		// when
+		try {
+			controller.changeState(action(LocalMappingJobController.ACTION_START));
+			fail("Starting a running job must fail");
+		}
+		catch (APIException e) {
+			// then
+			assertEquals(Integer.valueOf(5), LocalMappingJob.getCheckpoint(Context.getAdministrationService()));
+		}
+	}
+	
+	@Test
+	public void changeState_shouldReturnStatusWhenPausing() throws Exception {
+		// when
+		SimpleObject status = controller.changeState(action(LocalMappingJobController.ACTION_PAUSE));
+		
+		// then
+		assertEquals("IDLE", status.get("state"));
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void changeState_shouldFailIfActionIsNotSupported() throws Exception {
+		controller.changeState(action("stop"));
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void changeState_shouldFailIfActionIsMissing() throws Exception {
+		controller.changeState(new SimpleObject());
+	}
+	
+	private void setupLocalConceptSource() {
+		ConceptSource localConceptSource = new ConceptSource();
+		localConceptSource.setName("my-dict");
+		localConceptSource.setDescription("Description");
+		Context.getConceptService().saveConceptSource(localConceptSource);
+		Context.getService(MetadataMappingService.class).setLocalConceptSource(localConceptSource);
+	}
+	
+	private SimpleObject action(String action) {
+		return new SimpleObject().add(LocalMappingJobController.PARAM_ACTION, action);
+	}
+}
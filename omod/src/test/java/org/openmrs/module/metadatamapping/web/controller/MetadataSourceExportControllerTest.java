@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingFormat;
+import org.openmrs.module.metadatamapping.api.io.MetadataTermMappingImportResult;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests exporting the term mappings of a {@link org.openmrs.module.metadatamapping.MetadataSource}.
+ */
+public class MetadataSourceExportControllerTest extends BaseModuleWebContextSensitiveTest {
+	
+	private MetadataSourceExportController controller;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet("metadataMappingInMemoryTestDataSet.xml");
+		controller = new MetadataSourceExportController();
+	}
+	
+	@Test
+	public void export_shouldWriteJsonBySourceUuid() throws Exception {
+		// given
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		// when
+		controller.export("df29a160-0add-4598-8ac2-b11a9eb3cdb8", null, response);
+		
+		// then
+		assertTrue(response.getContentType().startsWith(MetadataTermMappingFormat.JSON.getContentType()));
+		assertEquals("UTF-8", response.getCharacterEncoding());
+		String json = response.getContentAsString();
+		assertTrue(json.startsWith("[{\"source\":\"Integration Test Metadata Source 1\",\"code\":\"mdt-xan\","));
+		assertTrue(json.endsWith("}]"));
+	}
+	
+	@Test
+	public void export_shouldWriteCsvBySourceName() throws Exception {
+		// given
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		// when
+		controller.export("Integration Test Metadata Source 1", "CSV", response);
+		
+		// then
+		assertTrue(response.getContentType().startsWith(MetadataTermMappingFormat.CSV.getContentType()));
+		String[] lines = response.getContentAsString().split("\r\n");
+		assertEquals(8, lines.length);
+		assertEquals("source,code,name,metadataClass,metadataUuid,retired,setMemberClass,setMemberUuid", lines[0]);
+	}
+	
+	@Test
+	public void export_shouldWriteTablesWhichCanBeImportedAgain() throws Exception {
+		// given
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.export("Integration Test Metadata Source 1", "csv", response);
+		
+		// when
+		String csv = response.getContentAsString();
+		MetadataTermMappingImportResult result = Context.getService(MetadataMappingService.class)
+		        .importMetadataTermMappings(new StringReader(csv), MetadataTermMappingFormat.CSV);
+		
+		// then
+		assertEquals(0, result.getErrorCount());
+		assertEquals(7, result.getUnchangedCount());
+	}
+	
+	@Test(expected = ObjectNotFoundException.class)
+	public void export_shouldFailIfSourceDoesNotExist() throws Exception {
+		controller.export("No Such Source", null, new MockHttpServletResponse());
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void export_shouldFailIfFormatIsNotSupported() throws Exception {
+		controller.export("Integration Test Metadata Source 1", "xml", new MockHttpServletResponse());
+	}
+}
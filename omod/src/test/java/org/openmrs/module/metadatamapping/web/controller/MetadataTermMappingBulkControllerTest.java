@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.metadatamapping.web.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.metadatamapping.MetadataSource;
+import org.openmrs.module.metadatamapping.MetadataTermMapping;
+import org.openmrs.module.metadatamapping.api.MetadataMappingService;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests creating and updating many term mappings in a single request.
+ */
+public class MetadataTermMappingBulkControllerTest extends BaseModuleWebContextSensitiveTest {
+	
+	private static final String SOURCE_NAME = "Integration Test Metadata Source 1";
+	
+	private static final String XANADU_UUID = "9356400c-a5a2-4532-8f2b-2361b3446eb8";
+	
+	private static final String NEVER_NEVER_LAND_UUID = "167ce20c-4785-4285-9119-d197268f7f4a";
+	
+	private MetadataTermMappingBulkController controller;
+	
+	private MetadataMappingService service;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet("metadataMappingInMemoryTestDataSet.xml");
+		controller = new MetadataTermMappingBulkController();
+		service = Context.getService(MetadataMappingService.class);
+	}
+	
+	@Test
+	public void save_shouldCreateUpdateAndKeepMappingsFromRequestBody() throws Exception {
+		// given
+		List<Map<String, Object>> request = parse("["
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"code\":\"bulk-1\",\"metadataClass\":\"org.openmrs.Location\","
+		        + "\"metadataUuid\":\"" + XANADU_UUID + "\",\"retired\":true},"
+		        + "{\"source\":\" " + SOURCE_NAME + " \",\"code\":\"mdt-xan\","
+		        + "\"metadataClass\":\"org.openmrs.Location\",\"metadataUuid\":\"" + NEVER_NEVER_LAND_UUID + "\"},"
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"code\":\"mdt-nnl\",\"metadataClass\":\"org.openmrs.Location\","
+		        + "\"metadataUuid\":\"" + NEVER_NEVER_LAND_UUID + "\"}]");
+		
+		// when
+		SimpleObject response = controller.save(request);
+		
+		// then
+		assertEquals(1, response.get("created"));
+		assertEquals(1, response.get("updated"));
+		assertEquals(1, response.get("unchanged"));
+		assertEquals(0, response.get("errors"));
+		
+		List<SimpleObject> results = results(response);
+		assertEquals(3, results.size());
+		assertEquals(0, results.get(0).get("index"));
+		assertEquals("created", results.get(0).get("status"));
+		assertEquals("updated", results.get(1).get("status"));
+		assertEquals("unchanged", results.get(2).get("status"));
+		
+		MetadataTermMapping created = service.getMetadataTermMappingByUuid((String) results.get(0).get("uuid"));
+		assertEquals("bulk-1", created.getCode());
+		assertEquals(XANADU_UUID, created.getMetadataUuid());
+		assertTrue(created.getRetired());
+		assertEquals(NEVER_NEVER_LAND_UUID, service.getMetadataTermMapping(getSource(), "mdt-xan").getMetadataUuid());
+	}
+	
+	@Test
+	public void save_shouldReportMalformedRowsAndSaveTheOthers() throws Exception {
+		// given
+		List<Map<String, Object>> request = parse("["
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"metadataClass\":\"org.openmrs.Location\"},"
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"code\":\"bulk-2\",\"retired\":\"maybe\"},"
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"code\":\"bulk-3\",\"metadataClass\":\"org.openmrs.Location\","
+		        + "\"metadataUuid\":\"no-such-location\"},"
+		        + "{\"source\":\"" + SOURCE_NAME + "\",\"code\":\"bulk-4\",\"metadataClass\":\"org.openmrs.Location\","
+		        + "\"metadataUuid\":\"" + XANADU_UUID + "\"}]");
+		
+		// when
+		SimpleObject response = controller.save(request);
+		
+		// then
+		assertEquals(1, response.get("created"));
+		assertEquals(3, response.get("errors"));
+		
+		List<SimpleObject> results = results(response);
+		assertEquals("error", results.get(0).get("status"));
+		assertEquals("Code is required", results.get(0).get("message"));
+		assertNull(results.get(0).get("uuid"));
+		assertEquals("error", results.get(1).get("status"));
+		assertEquals("Retired must be true or false", results.get(1).get("message"));
+		assertEquals("error", results.get(2).get("status"));
+		assertEquals("No org.openmrs.Location with uuid no-such-location", results.get(2).get("message"));
+		assertEquals("created", results.get(3).get("status"));
+		assertEquals(3, results.get(3).get("index"));
+		
+		assertNull(service.getMetadataTermMapping(getSource(), "bulk-2"));
+		assertNull(service.getMetadataTermMapping(getSource(), "bulk-3"));
+		assertEquals(XANADU_UUID, service.getMetadataTermMapping(getSource(), "bulk-4").getMetadataUuid());
+	}
+	
+	@Test
+	public void save_shouldNotSaveAnyMappingIfRequestIsRejected() throws Exception {
+		// given
+		int mappingCount = service.getMetadataTermMappings(getSource()).size();
+		
+		// when
+		try {
+			controller.save(parse("[]"));
+			fail("An empty request must be rejected");
+		}
+		catch (IllegalRequestException e) {
+			// then
+			assertEquals(mappingCount, service.getMetadataTermMappings(getSource()).size());
+		}
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void save_shouldFailIfRequestIsMissing() throws Exception {
+		controller.save(null);
+	}
+	
+	private MetadataSource getSource() {
+		return service.getMetadataSourceByName(SOURCE_NAME);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<SimpleObject> results(SimpleObject response) {
+		return (List<SimpleObject>) response.get("results");
+	}
+	
+	private List<Map<String, Object>> parse(String json) throws Exception {
+		return new ObjectMapper().readValue(json, new TypeReference<List<Map<String, Object>>>() {});
+	}
+}
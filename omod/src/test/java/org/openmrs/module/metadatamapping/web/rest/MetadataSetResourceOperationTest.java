@@ -7,17 +7,23 @@ import org.junit.Test;
 import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.response.ConversionException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.MainResourceControllerTest;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.openmrs.module.metadatamapping.web.rest.MetadataSourceResourceOperationTest.propertyValueEqualsTrue;
 
@@ -176,4 +182,72 @@ public class MetadataSetResourceOperationTest extends MainResourceControllerTest
 		
 		//then expect exception
 	}
+	
+	@Test
+	public void getMembers_shouldReadAllPagesWithCursor() throws Exception {
+		//given
+		String uuid = "2fb06283-befc-4273-9448-2fcbbe4c99d5";
+		
+		//when
+		SimpleObject firstPage = getMembersPage(uuid, null, null);
+		SimpleObject secondPage = getMembersPage(uuid, (String) firstPage.get(CursorPaged.PROPERTY_NEXT_CURSOR), null);
+		SimpleObject lastPage = getMembersPage(uuid, (String) secondPage.get(CursorPaged.PROPERTY_NEXT_CURSOR), null);
+		
+		//then
+		assertThat(getResultUuids(firstPage),
+		    is(Arrays.asList("e1e2cc7d-dfb4-4e26-85b1-727666ff066d", "0bc57eff-3088-460d-880b-56988d02851b")));
+		assertThat(getResultUuids(secondPage),
+		    is(Arrays.asList("f75d45fb-f478-438a-970c-1a6b4f61f503", "b0c99f16-14b8-49b2-8d14-1e7447ad6aa9")));
+		assertThat(getResultUuids(lastPage), is(Arrays.asList("e9bed2b0-2828-44b3-a499-e3a307600197")));
+		assertThat(lastPage.get(CursorPaged.PROPERTY_NEXT_CURSOR), is(nullValue()));
+	}
+	
+	@Test
+	public void getMembers_shouldReturnPageByStartIndexInCursorOrder() throws Exception {
+		//given
+		String uuid = "2fb06283-befc-4273-9448-2fcbbe4c99d5";
+		SimpleObject firstPage = getMembersPage(uuid, null, null);
+		SimpleObject secondPageByCursor = getMembersPage(uuid, (String) firstPage.get(CursorPaged.PROPERTY_NEXT_CURSOR),
+		    null);
+		
+		//when
+		SimpleObject secondPageByStartIndex = getMembersPage(uuid, null, 2);
+		
+		//then
+		assertThat(getResultUuids(secondPageByStartIndex), is(getResultUuids(secondPageByCursor)));
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void getMembers_shouldRejectCursorOfMemberOfOtherSet() throws Exception {
+		//given
+		String uuid = "2fb06283-befc-4273-9448-2fcbbe4c99d5";
+		// member 4 belongs to the set 552b694b-c493-43ee-810a-16ab5542ee83
+		String cursor = Base64.getUrlEncoder().encodeToString("4".getBytes(StandardCharsets.UTF_8));
+		
+		//when
+		getMembersPage(uuid, cursor, null);
+		
+		//then expect exception
+	}
+	
+	private SimpleObject getMembersPage(String metadataSetUuid, String cursor, Integer startIndex) throws Exception {
+		MockHttpServletRequest request = newGetRequest(getURI() + "/" + metadataSetUuid + "/members");
+		request.setParameter(RestConstants.REQUEST_PROPERTY_FOR_LIMIT, "2");
+		if (cursor != null) {
+			request.setParameter(CursorPaged.PARAM_CURSOR, cursor);
+		}
+		if (startIndex != null) {
+			request.setParameter(RestConstants.REQUEST_PROPERTY_FOR_START_INDEX, startIndex.toString());
+		}
+		return deserialize(handle(request));
+	}
+	
+	private List<String> getResultUuids(SimpleObject page) {
+		List<String> uuids = new ArrayList<String>();
+		List<?> results = page.get("results");
+		for (Object result : results) {
+			uuids.add((String) ((Map<?, ?>) result).get("uuid"));
+		}
+		return uuids;
+	}
 }
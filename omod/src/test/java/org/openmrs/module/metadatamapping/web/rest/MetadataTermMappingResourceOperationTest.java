@@ -253,6 +253,35 @@ public class MetadataTermMappingResourceOperationTest extends MainResourceContro
 		assertEquals(0, results.size());
 	}
 	
+	@Test
+	public void search_shouldReturnNextPageByCursor() throws Exception {
+		// given
+		MockHttpServletRequest request = newGetRequest(getURI());
+		request.setParameter("limit", "2");
+		SimpleObject firstPage = deserialize(handle(request));
+		String nextCursor = (String) firstPage.get("nextCursor");
+		assertNotNull(nextCursor);
+		
+		request = newGetRequest(getURI());
+		request.setParameter("limit", "2");
+		request.setParameter("startIndex", "2");
+		List<SimpleObject> expectedResults = deserialize(handle(request)).get("results");
+		
+		request = newGetRequest(getURI());
+		request.setParameter("limit", "2");
+		request.setParameter("cursor", nextCursor);
+		
+		// when
+		List<SimpleObject> results = deserialize(handle(request)).get("results");
+		
+		// then
+		assertEquals(2, results.size());
+		assertEquals(PropertyUtils.getProperty(expectedResults.get(0), "uuid"),
+		    PropertyUtils.getProperty(results.get(0), "uuid"));
+		assertEquals(PropertyUtils.getProperty(expectedResults.get(1), "uuid"),
+		    PropertyUtils.getProperty(results.get(1), "uuid"));
+	}
+	
 	@Override
 	public String getURI() {
 		return "/metadatamapping/termmapping";